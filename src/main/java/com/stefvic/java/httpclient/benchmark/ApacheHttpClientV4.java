@@ -2,39 +2,98 @@ package com.stefvic.java.httpclient.benchmark;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpVersion;
+import org.apache.http.client.cache.CacheResponseStatus;
+import org.apache.http.client.cache.HttpCacheContext;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.cache.CacheConfig;
+import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 
 public class ApacheHttpClientV4 implements HttpAgentClient {
 
     private final CloseableHttpClient client;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final int connectTimeoutMillis;
+    private final int keepAliveMillis;
+    private final ConnectStats connectStats = new ConnectStats();
+    private final CacheStats cacheStats;
 
     public ApacheHttpClientV4(BenchmarkConfig benchmarkConfig) {
         var concurrency = benchmarkConfig.getConcurrency();
         var soTimeoutMillis = benchmarkConfig.getClientSocketTimeoutMillis();
         var connectTimeoutMillis = benchmarkConfig.getClientConnectTimeoutMillis();
-        this.client = HttpClientBuilder.create()
-                                       .setMaxConnPerRoute(concurrency + 10)
-                                       .setMaxConnTotal(concurrency * 2)
-                                       .setDefaultSocketConfig(
-                                           SocketConfig.custom()
-                                                       .setSoTimeout(soTimeoutMillis)
-                                                       .build())
-                                       .setDefaultRequestConfig(
-                                           RequestConfig.custom()
-                                                        .setConnectTimeout(connectTimeoutMillis)
-                                                        .build())
-                                       .build();
+        var sslSocketFactory = benchmarkConfig.isHttpsScenario() ?
+            new SSLConnectionSocketFactory(BenchmarkTls.trustAllSslContext(), NoopHostnameVerifier.INSTANCE) :
+            SSLConnectionSocketFactory.getSocketFactory();
+        Registry<ConnectionSocketFactory> socketFactoryRegistry =
+            RegistryBuilder.<ConnectionSocketFactory>create()
+                           .register("http", new TimedConnectionSocketFactory(PlainConnectionSocketFactory.getSocketFactory(),
+                                                                              connectStats))
+                           .register("https", new TimedConnectionSocketFactory(sslSocketFactory, connectStats))
+                           .build();
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.keepAliveMillis = benchmarkConfig.getServerKeepAliveMillis();
+        this.connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setDefaultMaxPerRoute(concurrency + 10);
+        connectionManager.setMaxTotal(concurrency * 2);
+        connectionManager.setDefaultSocketConfig(
+            SocketConfig.custom()
+                        .setSoTimeout(soTimeoutMillis)
+                        .setSoLinger(benchmarkConfig.getClientSoLingerSeconds())
+                        .setSoReuseAddress(benchmarkConfig.isClientSoReuseAddress())
+                        .build());
+        HttpClientBuilder clientBuilder = benchmarkConfig.isCacheScenario() ?
+            CachingHttpClientBuilder.create().setCacheConfig(cacheConfig(benchmarkConfig)) :
+            HttpClientBuilder.create();
+        this.cacheStats = benchmarkConfig.isCacheScenario() ? new CacheStats() : null;
+        this.client = clientBuilder.setConnectionManager(connectionManager)
+                                   .setDefaultRequestConfig(
+                                       RequestConfig.custom()
+                                                    .setConnectTimeout(connectTimeoutMillis)
+                                                    .build())
+                                   .build();
+    }
+
+    /**
+     * In-memory private cache, the default max object size of 8KiB would not cache the benchmark content.
+     */
+    private static CacheConfig cacheConfig(BenchmarkConfig benchmarkConfig) {
+        return CacheConfig.custom()
+                          .setSharedCache(false)
+                          .setMaxCacheEntries(benchmarkConfig.getClientCacheEntries())
+                          .setMaxObjectSize(Math.max(benchmarkConfig.getContentBytesSize(),
+                                                     benchmarkConfig.getServerMaxContentBytes()))
+                          .build();
     }
 
     public static void main(String[] args) {
@@ -57,18 +116,80 @@ public class ApacheHttpClientV4 implements HttpAgentClient {
                                  .build();
     }
 
+    @Override
+    public Optional<ConnectStats> connectStats() {
+        return Optional.of(connectStats);
+    }
+
+    @Override
+    public Optional<CacheStats> cacheStats() {
+        return Optional.ofNullable(cacheStats);
+    }
+
+    private void recordCacheOutcome(HttpCacheContext cacheContext,
+                                    long startNanos,
+                                    HttpClientResponse httpClientResponse) {
+        var cacheResponseStatus = cacheContext.getCacheResponseStatus();
+        if (cacheResponseStatus == CacheResponseStatus.CACHE_HIT) {
+            cacheStats.record(CacheStats.Outcome.HIT, startNanos, httpClientResponse.responseBodyLength());
+        } else if (cacheResponseStatus == CacheResponseStatus.VALIDATED) {
+            cacheStats.record(CacheStats.Outcome.REVALIDATED, startNanos, httpClientResponse.responseBodyLength());
+        } else {
+            cacheStats.record(CacheStats.Outcome.MISS, startNanos, 0);
+        }
+    }
+
     @Override
     public HttpClientResponse get(URI target, HttpClientContext httpClientContext) {
         HttpGet httpGet = new HttpGet(target);
         httpGet.setProtocolVersion(HttpVersion.HTTP_1_1);
         addHeaders(httpGet, httpClientContext);
-        try (var response = client.execute(httpGet)) {
-            return toHttpClientResponse(response);
+        var cacheContext = cacheStats == null ? null : HttpCacheContext.create();
+        long start = System.nanoTime();
+        try (var response = client.execute(httpGet, cacheContext)) {
+            var httpClientResponse = toHttpClientResponse(response);
+            if (cacheContext != null) {
+                recordCacheOutcome(cacheContext, start, httpClientResponse);
+            }
+            return httpClientResponse;
         } catch (IOException ioEx) {
             throw new UncheckedIOException(ioEx);
         }
     }
 
+    /**
+     * Opens the connections by the pool itself, whatever the target resource: leases them all at once, connects the
+     * new ones and releases them back, kept alive for the server idle timeout.
+     */
+    @Override
+    public void prewarm(URI target, int connections) {
+        var route = new HttpRoute(URIUtils.extractHost(target));
+        var context = new BasicHttpContext();
+        List<HttpClientConnection> leased = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < Math.min(connections, connectionManager.getMaxPerRoute(route)); i++) {
+                var connection = connectionManager.requestConnection(route, null)
+                                                  .get(PREWARM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                leased.add(connection);
+                if (!connection.isOpen()) {
+                    connectionManager.connect(connection, route, connectTimeoutMillis, context);
+                    connectionManager.routeComplete(connection, route, context);
+                }
+            }
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException(ioEx);
+        } catch (ExecutionException executionEx) {
+            throw new IllegalStateException("Prewarm " + target + " failed", executionEx);
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Prewarm " + target + " interrupted", interruptedEx);
+        } finally {
+            // the not connected ones are discarded by the pool
+            leased.forEach(connection -> connectionManager.releaseConnection(connection, null, keepAliveMillis,
+                                                                             TimeUnit.MILLISECONDS));
+        }
+    }
+
     @Override
     public HttpClientResponse post(URI target, HttpClientContext httpClientContext) {
         HttpPost httpPost = new HttpPost(target);
@@ -82,4 +203,41 @@ public class ApacheHttpClientV4 implements HttpAgentClient {
             throw new UncheckedIOException(ioEx);
         }
     }
+
+    /**
+     * Times the socket connect, including the TLS handshake for https.
+     */
+    private static final class TimedConnectionSocketFactory implements ConnectionSocketFactory {
+
+        private final ConnectionSocketFactory delegate;
+        private final ConnectStats connectStats;
+
+        private TimedConnectionSocketFactory(ConnectionSocketFactory delegate, ConnectStats connectStats) {
+            this.delegate = delegate;
+            this.connectStats = connectStats;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return delegate.createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout,
+                                    Socket sock,
+                                    HttpHost host,
+                                    InetSocketAddress remoteAddress,
+                                    InetSocketAddress localAddress,
+                                    HttpContext context) throws IOException {
+            long start = System.nanoTime();
+            try {
+                var socket = delegate.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+                connectStats.connected(start);
+                return socket;
+            } catch (IOException ioEx) {
+                connectStats.connectFailed();
+                throw ioEx;
+            }
+        }
+    }
 }
@@ -20,13 +20,248 @@ public final class BenchmarkConfig {
     private final int port = 8989;
     @Default
     private final int contentBytesSize = 10_000;
+    /**
+     * Number of server ports (routes) starting from the {@link #port}.
+     */
+    @Default
+    private final int serverPorts = 1;
+    /**
+     * How requests are spread across the routes: {@code round-robin}, {@code random} or {@code zipfian}.
+     */
+    @Default
+    private final String routeDistribution = "round-robin";
     @Default
     private final boolean keepAliveScenario = true;
     @Default
     private final int serverKeepAliveMillis = secondsToMillis(60);
+    /**
+     * Server handles the benchmark resources by servlet async non-blocking I/O.
+     */
+    @Default
+    private final boolean serverAsyncScenario = false;
+    /**
+     * Max content bytes served by the server for the sized fixed resource requests.
+     */
+    @Default
+    private final int serverMaxContentBytes = 1024 * 1024;
+    /**
+     * Server async handling threads, derived from the available processors when not positive.
+     */
+    @Default
+    private final int serverThreads = 0;
     @Default
     private final int clientSocketTimeoutMillis = secondsToMillis(60);
     @Default
     private final int clientConnectTimeoutMillis = secondsToMillis(10);
+    /**
+     * Connection churn scenario, every request is sent with {@code Connection: Close}.
+     */
+    @Default
+    private final boolean churnScenario = false;
+    /**
+     * Paces the churn scenario requests, hence the new connections, per second; unpaced when not positive.
+     */
+    @Default
+    private final int churnConnectsPerSecond = 0;
+    /**
+     * Client socket SO_LINGER in seconds, the socket default when negative.
+     */
+    @Default
+    private final int clientSoLingerSeconds = -1;
+    @Default
+    private final boolean clientSoReuseAddress = false;
+    /**
+     * Workload profile file, replaces the GET and POST phases by the profile request mix when set.
+     */
+    @Default
+    private final String workloadProfile = "";
+    /**
+     * Access log file replayed instead of the GET and POST phases when set.
+     */
+    @Default
+    private final String workloadReplay = "";
+    @Default
+    private final double workloadReplaySpeed = 1.0;
+    /**
+     * Local worker JVMs started by the distributed benchmark coordinator.
+     */
+    @Default
+    private final int workers = 2;
+    /**
+     * Workers started on other hosts, expected by the coordinator in addition to the local ones.
+     */
+    @Default
+    private final int remoteWorkers = 0;
+    @Default
+    private final String coordinatorHost = "127.0.0.1";
+    /**
+     * Coordinator listening port, ephemeral when 0, remote workers need a fixed one.
+     */
+    @Default
+    private final int coordinatorPort = 0;
+    /**
+     * Benchmark server host targeted by the clients, remote workers need the server host address.
+     */
+    @Default
+    private final String serverHost = "127.0.0.1";
+    @Default
+    private final boolean httpsScenario = false;
+    /**
+     * Comma separated cipher suites enabled on the server, all the JSSE defaults when empty.
+     */
+    @Default
+    private final String tlsCipherSuites = "";
+    @Default
+    private final String tlsKeyAlgorithm = "RSA";
+    /**
+     * GET requests target the cacheable {@code /cached} resources, the clients enable their cache layer.
+     */
+    @Default
+    private final boolean cacheScenario = false;
+    /**
+     * Distinct cacheable resources, picked uniformly by the GET requests.
+     */
+    @Default
+    private final int cacheResources = 100;
+    /**
+     * Server side interval between two versions of a cacheable resource, never changes when 0.
+     */
+    @Default
+    private final int cacheChangeIntervalMillis = 10_000;
+    /**
+     * Server {@code Cache-Control max-age}, 0 forces a revalidation on every request.
+     */
+    @Default
+    private final int cacheMaxAgeSeconds = 1;
+    @Default
+    private final int clientCacheEntries = 10_000;
+    /**
+     * OkHttp disk cache size.
+     */
+    @Default
+    private final int clientCacheMaxBytes = 256 * 1024 * 1024;
+    /**
+     * Cold start requests sent one after another from the client construction, including the first one.
+     */
+    @Default
+    private final int coldStartRequests = 1000;
+    /**
+     * Searches the max open loop GET throughput under the p99 SLO instead of the GET and POST phases.
+     */
+    @Default
+    private final boolean capacitySearch = false;
+    @Default
+    private final int capacitySloP99Millis = 50;
+    @Default
+    private final double capacityMaxErrorRatio = 0.001;
+    @Default
+    private final int capacityStartRps = 500;
+    @Default
+    private final int capacityMaxRps = 1_000_000;
+    @Default
+    private final int capacityStepSeconds = 5;
+    /**
+     * The binary search stops when the failed and passed rates are closer than this ratio of the passed one.
+     */
+    @Default
+    private final double capacityPrecision = 0.05;
+    /**
+     * Runs the WebSocket echo and Server-Sent Events streams instead of the GET and POST phases.
+     */
+    @Default
+    private final boolean streamScenario = false;
+    /**
+     * Concurrent streams, every one of them on its own connection.
+     */
+    @Default
+    private final int streams = 100;
+    /**
+     * Messages per stream and protocol.
+     */
+    @Default
+    private final int streamMessages = 10_000;
+    @Default
+    private final int streamMessageBytes = 256;
+    /**
+     * Messages per second per stream, unpaced when 0.
+     */
+    @Default
+    private final int streamRate = 0;
+    /**
+     * Max WebSocket messages sent and not yet echoed per stream, 1 is a ping-pong.
+     */
+    @Default
+    private final int streamWindow = 1;
+    /**
+     * Runs the GET phase unhedged then hedged by {@link HedgingHttpAgentClient} instead of the GET and POST phases.
+     */
+    @Default
+    private final boolean hedgeScenario = false;
+    /**
+     * The primary request latency percentile after which the backup request is sent.
+     */
+    @Default
+    private final double hedgePercentile = 95.0;
+    /**
+     * Max backup requests ratio of the requests.
+     */
+    @Default
+    private final double hedgeBudgetRatio = 0.05;
+    /**
+     * Requests per latency estimator window, the hedge threshold is updated at every window end.
+     */
+    @Default
+    private final int hedgeEstimatorWindow = 1000;
+    /**
+     * Share of the GET and POST benchmark requests delayed by the server.
+     */
+    @Default
+    private final double serverInjectedLatencyRatio = 0.0;
+    @Default
+    private final int serverInjectedLatencyMillis = 100;
+    /**
+     * {@link JDKHttpConfigurableClient} executor: default, fixed, forkjoin, direct or virtual.
+     */
+    @Default
+    private final String jdkExecutor = "fixed";
+    @Default
+    private final int jdkExecutorThreads = 2;
+    /**
+     * {@link JDKHttpConfigurableClient} http client instances, sharded by the caller threads.
+     */
+    @Default
+    private final int jdkClients = 1;
+    /**
+     * The JDK client strategy matrix table the {@link JDKHttpClientMatrix} rows are appended to, none when empty.
+     */
+    @Default
+    private final String jdkMatrixReport = "";
+    /**
+     * The server JVM CPU list, e.g. {@code 0-3}, pinned by {@link CpuAffinity} on Linux, not pinned when empty.
+     */
+    @Default
+    private final String serverCpus = "";
+    /**
+     * The client JVMs CPU list, e.g. {@code 4-5}, pinned by {@link CpuAffinity} on Linux, not pinned when empty.
+     */
+    @Default
+    private final String clientCpus = "";
+    /**
+     * Pre-warms the client connection pool before any traffic, see {@link HttpAgentClient#prewarm}.
+     */
+    @Default
+    private final boolean prewarm = false;
+    /**
+     * Pre-warmed connections spread over the server ports, the concurrency when 0.
+     */
+    @Default
+    private final int prewarmConnections = 0;
+    @Default
+    private final int prewarmHoldMillis = 100;
+    /**
+     * {@link PrewarmBenchmark} measured traffic right after the client construction.
+     */
+    @Default
+    private final int prewarmMeasureMillis = 1000;
 
 }
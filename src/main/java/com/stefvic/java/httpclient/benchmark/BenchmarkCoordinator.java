@@ -0,0 +1,169 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed benchmark coordinator: starts the local {@link BenchmarkWorker} JVMs, waits for them and the remote
+ * workers to be warmed up, starts all of them at one synchronized time and merges their phase results.
+ * <p>
+ * Workers talk to the coordinator over a plain socket by {@link DataInputStream}/{@link DataOutputStream} messages:
+ * {@link #READY} with the worker id, {@link #START} with the epoch millis to start at, {@link #RESULT} with the phase
+ * results. The {@code benchmark.concurrency} and {@code benchmark.requests} are per worker.
+ * <pre>
+ * BenchmarkCoordinator clientSimpleClassName
+ * </pre>
+ */
+public final class BenchmarkCoordinator {
+
+    static final byte READY = 1;
+    static final byte START = 2;
+    static final byte RESULT = 3;
+
+    private static final long START_DELAY_MILLIS = 1000;
+    private static final long ACCEPT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int ACCEPT_POLL_MILLIS = 1000;
+
+    private BenchmarkCoordinator() {
+        throw new AssertionError("No instance");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expected arguments: client");
+        }
+        var clientName = args[0];
+        var benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        BenchmarkUtils.printJavaOsInfo();
+        System.out.println(benchmarkConfig);
+
+        var totalWorkers = benchmarkConfig.getWorkers() + benchmarkConfig.getRemoteWorkers();
+        var bindAddress = InetAddress.getByName(benchmarkConfig.getCoordinatorHost());
+        List<Process> localWorkers = new ArrayList<>();
+        List<Socket> workers = new ArrayList<>();
+        // one buffered stream pair per worker socket, for the read ahead bytes not to be lost between messages
+        List<DataInputStream> inputs = new ArrayList<>();
+        List<DataOutputStream> outputs = new ArrayList<>();
+        try (var serverSocket = new ServerSocket(benchmarkConfig.getCoordinatorPort(), totalWorkers, bindAddress)) {
+            serverSocket.setSoTimeout(ACCEPT_POLL_MILLIS);
+            System.out.println("Benchmark coordinator is listening on " + bindAddress.getHostAddress() + ":" +
+                                   serverSocket.getLocalPort() + ", workers: " + totalWorkers);
+            var workerHost = bindAddress.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() : bindAddress;
+            for (int i = 0; i < benchmarkConfig.getWorkers(); i++) {
+                localWorkers.add(startLocalWorker(workerHost, serverSocket.getLocalPort(), "worker-" + i, clientName));
+            }
+            long acceptDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_TIMEOUT_MILLIS);
+            for (int i = 0; i < totalWorkers; i++) {
+                var worker = accept(serverSocket, localWorkers, acceptDeadlineNanos);
+                workers.add(worker);
+                inputs.add(new DataInputStream(new BufferedInputStream(worker.getInputStream())));
+                outputs.add(new DataOutputStream(new BufferedOutputStream(worker.getOutputStream())));
+            }
+
+            List<String> workerIds = new ArrayList<>();
+            for (DataInputStream input : inputs) {
+                expect(input, READY);
+                workerIds.add(input.readUTF());
+            }
+
+            long startAtEpochMillis = System.currentTimeMillis() + START_DELAY_MILLIS;
+            System.out.println("Benchmark workers " + workerIds + " start at epoch millis " + startAtEpochMillis);
+            for (DataOutputStream output : outputs) {
+                output.writeByte(START);
+                output.writeLong(startAtEpochMillis);
+                output.flush();
+            }
+
+            Map<String, List<PhaseResult>> phases = new LinkedHashMap<>();
+            for (int i = 0; i < workers.size(); i++) {
+                var input = inputs.get(i);
+                expect(input, RESULT);
+                int results = input.readInt();
+                for (int r = 0; r < results; r++) {
+                    var result = PhaseResult.readFrom(input);
+                    System.out.println(workerIds.get(i) + " " + result);
+                    phases.computeIfAbsent(result.getName(), ignore -> new ArrayList<>()).add(result);
+                }
+            }
+
+            System.out.println("\nBenchmark merged results of " + workers.size() + " workers on concurrency '" +
+                                   benchmarkConfig.getConcurrency() + "' each:");
+            phases.forEach((name, results) -> System.out.println(PhaseResult.merge(name, results)));
+        } finally {
+            for (Socket worker : workers) {
+                worker.close();
+            }
+            for (Process localWorker : localWorkers) {
+                if (!localWorker.waitFor(1, TimeUnit.MINUTES)) {
+                    localWorker.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Accepts the next worker connection, failing fast when a local worker JVM exits before connecting, e.g. on an
+     * unsupported client, instead of waiting out the accept timeout.
+     */
+    private static Socket accept(ServerSocket serverSocket,
+                                 List<Process> localWorkers,
+                                 long deadlineNanos) throws IOException {
+        while (true) {
+            try {
+                return serverSocket.accept();
+            } catch (SocketTimeoutException timeoutEx) {
+                for (Process localWorker : localWorkers) {
+                    if (!localWorker.isAlive()) {
+                        throw new IllegalStateException("Benchmark local worker pid " + localWorker.pid() +
+                                                            " exited with " + localWorker.exitValue() +
+                                                            " before connecting");
+                    }
+                }
+                if (System.nanoTime() - deadlineNanos > 0) {
+                    throw timeoutEx;
+                }
+            }
+        }
+    }
+
+    private static void expect(DataInputStream input, byte message) throws IOException {
+        var received = input.readByte();
+        if (received != message) {
+            throw new IllegalStateException("Unexpected worker message '" + received + "', expected '" + message + "'");
+        }
+    }
+
+    /**
+     * Starts a worker JVM with the coordinator JVM arguments, hence the same heap and benchmark properties.
+     */
+    private static Process startLocalWorker(InetAddress coordinatorHost,
+                                            int coordinatorPort,
+                                            String workerId,
+                                            String clientName) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkWorker.class.getName());
+        command.add(coordinatorHost.getHostAddress());
+        command.add(String.valueOf(coordinatorPort));
+        command.add(workerId);
+        command.add(clientName);
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+}
@@ -1,9 +1,22 @@
 package com.stefvic.java.httpclient.benchmark;
 
+import static com.stefvic.java.httpclient.benchmark.BenchmarkTls.KEY_STORE_PASSWORD;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkTls.KEY_STORE_TYPE;
 import static com.stefvic.java.httpclient.benchmark.BenchmarkUtils.printJavaOsInfo;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CACHE_CONTROL_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_EVENT_STREAM;
 import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_HEADER;
 import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_OCTET_STREAM;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_ETAG_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_IF_MODIFIED_SINCE_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_IF_NONE_MATCH_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_LAST_MODIFIED_HEADER;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
@@ -13,42 +26,176 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.atomic.LongAdder;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.util.ByteArrayOutputStream2;
 import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.server.config.JettyWebSocketServletContainerInitializer;
 
 public final class BenchmarkJettyHttpServer implements AutoCloseable {
 
     public static final String FIXED_RESOURCE = "/fixed";
     public static final String ECHO_RESOURCE = "/echo";
-    public static final String STATS_RESOURCE = "/stats";
-    public static final String STATS_RESET_RESOURCE = "/stats/reset";
+    /**
+     * Cacheable fixed content, served with validators and answering the conditional requests by a 304.
+     */
+    public static final String CACHED_RESOURCE = "/cached";
+    /**
+     * Optional {@link #FIXED_RESOURCE} query parameter, the response content length in bytes.
+     */
+    public static final String SIZE_PARAMETER = "size";
+    /**
+     * Optional {@link #CACHED_RESOURCE} query parameter, the cacheable resource id.
+     */
+    public static final String ID_PARAMETER = "id";
+    /**
+     * WebSocket echo endpoint, every text message is sent back as is.
+     */
+    public static final String WEBSOCKET_ECHO_RESOURCE = "/ws/echo";
+    /**
+     * Server-Sent Events stream of {@link #MESSAGES_PARAMETER} events of {@link #SIZE_PARAMETER} bytes, paced at
+     * {@link #RATE_PARAMETER} events per second (unpaced when 0). Every event data starts by its sending epoch nanos.
+     */
+    public static final String SSE_RESOURCE = "/sse";
+    public static final String MESSAGES_PARAMETER = "messages";
+    /**
+     * Connection pre-warming resource, every request is held {@link #HOLD_PARAMETER} millis then answered with no
+     * content, so the concurrent requests overlap and each one opens its own connection.
+     */
+    public static final String PREWARM_RESOURCE = "/prewarm";
+    public static final String HOLD_PARAMETER = "hold";
+    public static final String RATE_PARAMETER = "rate";
+    private static final String WEBSOCKET_CONTEXT = "/ws";
+    private static final String CIPHER_SUITE_ATTRIBUTE = "jakarta.servlet.request.cipher_suite";
+    private static final int ASYNC_READ_CHUNK_BYTES = 8192;
     private final Server server;
     private final int port;
+    private final int ports;
+    private final String scheme;
 
     public BenchmarkJettyHttpServer(BenchmarkConfig benchmarkConfig) {
-        int minThreads = benchmarkConfig.getConcurrency();
-        int maxThreads = minThreads * 2; // ++ buffer
+        int ports = benchmarkConfig.getServerPorts();
+        // every additional route connector accepts on its single selector thread
+        int routeConnectorThreads = ports - 1;
+        // async handling does not hold a thread per in-flight request, the pool is not sized by the concurrency
+        int handlingThreads = benchmarkConfig.isServerAsyncScenario() ?
+            asyncHandlingThreads(benchmarkConfig) :
+            benchmarkConfig.getConcurrency();
+        if (benchmarkConfig.isStreamScenario()) {
+            // every server-sent events stream holds a thread
+            handlingThreads = Math.max(handlingThreads, benchmarkConfig.getStreams());
+        }
+        if (benchmarkConfig.isHedgeScenario()) {
+            // the backup requests and the cancelled ones, still handled
+            handlingThreads *= 2;
+        }
+        int minThreads = handlingThreads + routeConnectorThreads;
+        int maxThreads = handlingThreads * 2 + routeConnectorThreads; // ++ buffer
         int keepAlive = benchmarkConfig.getServerKeepAliveMillis();
 
         QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads, minThreads);
         this.server = new Server(threadPool);
         this.port = benchmarkConfig.getPort();
-        ServerConnector connector = new ServerConnector(server);
-        connector.setPort(benchmarkConfig.getPort());
-        connector.setIdleTimeout(keepAlive);
-        server.addConnector(connector);
-        server.setHandler(new BenchmarkHandler(benchmarkConfig));
+        this.ports = ports;
+        this.scheme = benchmarkConfig.isHttpsScenario() ? "https" : "http";
+        TlsHandshakeStats tlsHandshakeStats = benchmarkConfig.isHttpsScenario() ? new TlsHandshakeStats() : null;
+        ServerMetrics serverMetrics = new ServerMetrics(Set.of(FIXED_RESOURCE, ECHO_RESOURCE, CACHED_RESOURCE,
+                                                               SSE_RESOURCE, WEBSOCKET_ECHO_RESOURCE,
+                                                               PREWARM_RESOURCE),
+                                                        threadPool,
+                                                        tlsHandshakeStats);
+        SslContextFactory.Server sslContextFactory = benchmarkConfig.isHttpsScenario() ?
+            sslContextFactory(benchmarkConfig) :
+            null;
+        for (int route = 0; route < ports; route++) {
+            int acceptors = route == 0 ? -1 : 0;
+            int selectors = route == 0 ? -1 : 1;
+            ServerConnector connector = sslContextFactory == null ?
+                new ServerConnector(server, acceptors, selectors) :
+                httpsConnector(server, acceptors, selectors, sslContextFactory, tlsHandshakeStats);
+            connector.setPort(benchmarkConfig.getPort() + route);
+            connector.setIdleTimeout(keepAlive);
+            serverMetrics.monitor(connector);
+            server.addConnector(connector);
+        }
+        server.setHandler(serverMetrics.handler(new HandlerList(webSocketContext(benchmarkConfig),
+                                                                new BenchmarkHandler(benchmarkConfig,
+                                                                                     tlsHandshakeStats))));
+    }
+
+    private static int asyncHandlingThreads(BenchmarkConfig benchmarkConfig) {
+        if (benchmarkConfig.getServerThreads() > 0) {
+            return benchmarkConfig.getServerThreads();
+        }
+        return Math.max(8, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The WebSocket endpoints context, the other requests fall through to the benchmark handler.
+     */
+    private static ServletContextHandler webSocketContext(BenchmarkConfig benchmarkConfig) {
+        var context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath(WEBSOCKET_CONTEXT);
+        JettyWebSocketServletContainerInitializer.configure(context, (servletContext, container) -> {
+            container.setMaxTextMessageSize(Math.max(benchmarkConfig.getStreamMessageBytes(),
+                                                     benchmarkConfig.getServerMaxContentBytes()));
+            container.setIdleTimeout(Duration.ofMillis(benchmarkConfig.getServerKeepAliveMillis()));
+            container.addMapping(WEBSOCKET_ECHO_RESOURCE.substring(WEBSOCKET_CONTEXT.length()),
+                                 (upgradeRequest, upgradeResponse) -> new EchoWebSocket());
+        });
+        return context;
+    }
+
+    private static SslContextFactory.Server sslContextFactory(BenchmarkConfig benchmarkConfig) {
+        var keyStore = BenchmarkTls.generateSelfSignedKeyStore(benchmarkConfig.getTlsKeyAlgorithm());
+        var sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(keyStore.toString());
+        sslContextFactory.setKeyStoreType(KEY_STORE_TYPE);
+        sslContextFactory.setKeyStorePassword(KEY_STORE_PASSWORD);
+        if (!benchmarkConfig.getTlsCipherSuites().isEmpty()) {
+            sslContextFactory.setIncludeCipherSuites(benchmarkConfig.getTlsCipherSuites().split("\\s*,\\s*"));
+        }
+        return sslContextFactory;
+    }
+
+    private static ServerConnector httpsConnector(Server server,
+                                                  int acceptors,
+                                                  int selectors,
+                                                  SslContextFactory.Server sslContextFactory,
+                                                  TlsHandshakeStats tlsHandshakeStats) {
+        var httpsConfig = new HttpConfiguration();
+        httpsConfig.addCustomizer(new SecureRequestCustomizer());
+        ServerConnector connector = new ServerConnector(server,
+                                                        acceptors,
+                                                        selectors,
+                                                        new SslConnectionFactory(sslContextFactory,
+                                                                                 HttpVersion.HTTP_1_1.asString()),
+                                                        new HttpConnectionFactory(httpsConfig));
+        // picked up by the ssl connection factory as connection and handshake listener
+        connector.addBean(tlsHandshakeStats);
+        return connector;
     }
 
     public static void main(String[] args) throws Exception {
         var benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        CpuAffinity.pin(benchmarkConfig.getServerCpus());
         System.out.println(benchmarkConfig);
         try (var server = new BenchmarkJettyHttpServer(benchmarkConfig)) {
             server.start();
@@ -66,7 +213,11 @@ public final class BenchmarkJettyHttpServer implements AutoCloseable {
     public void start() throws Exception {
         server.start();
         printJavaOsInfo();
-        System.out.println("Benchmark server is listening on port " + port);
+        if (ports == 1) {
+            System.out.println("Benchmark server is listening on " + scheme + " port " + port);
+        } else {
+            System.out.println("Benchmark server is listening on " + scheme + " ports " + port + ".." + (port + ports - 1));
+        }
     }
 
     public void stop() throws Exception {
@@ -84,38 +235,80 @@ public final class BenchmarkJettyHttpServer implements AutoCloseable {
     }
 
 
+    /**
+     * Echoes the text messages back asynchronously.
+     */
+    public static final class EchoWebSocket extends WebSocketAdapter {
+
+        @Override
+        public void onWebSocketText(String message) {
+            getRemote().sendString(message, WriteCallback.NOOP);
+        }
+    }
+
     static final class BenchmarkHandler extends AbstractHandler {
 
+        private static final byte[] SSE_DATA_PREFIX = "data: ".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] SSE_EVENT_END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
         private final BenchmarkConfig benchmarkConfig;
         private final byte[] fixedContentResponse;
-        private final LongAdder totalRequestHandled = new LongAdder();
-        private final LongAdder fixedRequestHandled = new LongAdder();
-        private final LongAdder echoRequestHandled = new LongAdder();
+        private final long startMillis = System.currentTimeMillis();
+        private final TlsHandshakeStats tlsHandshakeStats;
 
-        public BenchmarkHandler(BenchmarkConfig benchmarkConfig) {
+        public BenchmarkHandler(BenchmarkConfig benchmarkConfig, TlsHandshakeStats tlsHandshakeStats) {
             this.benchmarkConfig = benchmarkConfig;
-            this.fixedContentResponse = BenchmarkUtils.randomContent(benchmarkConfig.getContentBytesSize());
+            this.tlsHandshakeStats = tlsHandshakeStats;
+            // sized responses are served from the same content, up to the server max content bytes
+            this.fixedContentResponse = BenchmarkUtils.randomContent(Math.max(benchmarkConfig.getContentBytesSize(),
+                                                                              benchmarkConfig.getServerMaxContentBytes()));
         }
 
         @Override
         public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
             throws IOException {
-            if (target.equals(STATS_RESOURCE)) {
-                stats(response);
-                //do not increment total request handle on stats
-                return;
-            } else if (target.equals(STATS_RESET_RESOURCE)) {
-                statsReset(response);
-                //do not increment total request handle on stats
-                return;
-            } else if (target.equals(FIXED_RESOURCE)) {
+            if (target.equals(FIXED_RESOURCE) || target.equals(CACHED_RESOURCE) || target.equals(ECHO_RESOURCE)) {
+                injectLatency();
+            }
+            if (target.equals(FIXED_RESOURCE)) {
                 // to be used for get fixed content payload response
-                fixed(response);
-                fixedRequestHandled.increment();
+                int contentLength = fixedContentLength(request);
+                if (contentLength < 0) {
+                    badRequest(response, "Invalid " + SIZE_PARAMETER + ": " + request.getParameter(SIZE_PARAMETER));
+                } else if (benchmarkConfig.isServerAsyncScenario()) {
+                    baseRequest.setHandled(true);
+                    asyncFixed(request, response, contentLength);
+                } else {
+                    fixed(response, contentLength);
+                }
+            } else if (target.equals(CACHED_RESOURCE)) {
+                int contentLength = fixedContentLength(request);
+                if (contentLength < 0) {
+                    badRequest(response, "Invalid " + SIZE_PARAMETER + ": " + request.getParameter(SIZE_PARAMETER));
+                } else if (cachedNotModified(request, response)) {
+                    // no content to write, hence handled explicitly for Jetty not to answer 404
+                    baseRequest.setHandled(true);
+                    response.setStatus(HttpStatus.NOT_MODIFIED_304);
+                } else if (benchmarkConfig.isServerAsyncScenario()) {
+                    baseRequest.setHandled(true);
+                    asyncFixed(request, response, contentLength);
+                } else {
+                    fixed(response, contentLength);
+                }
+            } else if (target.equals(PREWARM_RESOURCE)) {
+                // no content to write, hence handled explicitly for Jetty not to answer 404
+                baseRequest.setHandled(true);
+                prewarm(request, response);
+            } else if (target.equals(SSE_RESOURCE)) {
+                serverSentEvents(request, response);
             } else if (target.equals(ECHO_RESOURCE)) {
                 // to be used fro post
-                echo(request, response);
-                echoRequestHandled.increment();
+                if (benchmarkConfig.isServerAsyncScenario()) {
+                    baseRequest.setHandled(true);
+                    asyncEcho(request, response);
+                } else {
+                    echo(request, response);
+                }
             } else {
                 response.setStatus(HttpStatus.NOT_FOUND_404);
                 try (Writer writer = response.getWriter()) {
@@ -123,7 +316,9 @@ public final class BenchmarkJettyHttpServer implements AutoCloseable {
                     writer.flush();
                 }
             }
-            totalRequestHandled.increment();
+            if (tlsHandshakeStats != null) {
+                tlsHandshakeStats.requestHandled((String) request.getAttribute(CIPHER_SUITE_ATTRIBUTE));
+            }
         }
 
         private void echo(HttpServletRequest request, HttpServletResponse response) {
@@ -149,46 +344,207 @@ public final class BenchmarkJettyHttpServer implements AutoCloseable {
             }
         }
 
-        private void fixed(final HttpServletResponse response) throws IOException {
+        /**
+         * Reads the request content by the non-blocking {@link ReadListener} and echoes it back asynchronously, the
+         * handling thread is released as soon as the listener is registered.
+         */
+        private void asyncEcho(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(benchmarkConfig.getServerKeepAliveMillis());
+            ServletInputStream inputStream = request.getInputStream();
+            ByteArrayOutputStream2 buffer = new ByteArrayOutputStream2();
+            inputStream.setReadListener(new ReadListener() {
+                private final byte[] chunk = new byte[ASYNC_READ_CHUNK_BYTES];
+
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (inputStream.isReady()) {
+                        int read = inputStream.read(chunk);
+                        if (read < 0) {
+                            return;
+                        }
+                        buffer.write(chunk, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    asyncWrite(asyncContext, response, buffer.getBuf(), buffer.getCount());
+                }
+
+                @Override
+                public void onError(Throwable failure) {
+                    asyncContext.complete();
+                }
+            });
+        }
+
+        private void asyncFixed(HttpServletRequest request, HttpServletResponse response, int contentLength)
+            throws IOException {
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(benchmarkConfig.getServerKeepAliveMillis());
+            asyncWrite(asyncContext, response, fixedContentResponse, contentLength);
+        }
+
+        /**
+         * Writes the content by the non-blocking {@link WriteListener} and completes the async context once the
+         * write is done.
+         */
+        private void asyncWrite(AsyncContext asyncContext, HttpServletResponse response, byte[] content, int length)
+            throws IOException {
             response.setStatus(200);
-            //response.setContentLength(benchmarkConfig.getContentBytesSize());
             response.setHeader(HTTP_CONTENT_TYPE_HEADER, HTTP_CONTENT_TYPE_OCTET_STREAM);
+            ServletOutputStream outputStream = response.getOutputStream();
+            outputStream.setWriteListener(new WriteListener() {
+                private boolean written;
 
-            OutputStream outputStream = response.getOutputStream();
-            IO.copy(new ByteArrayInputStream(fixedContentResponse), outputStream);
-            outputStream.flush();
+                @Override
+                public void onWritePossible() throws IOException {
+                    while (outputStream.isReady()) {
+                        if (written) {
+                            asyncContext.complete();
+                            return;
+                        }
+                        written = true;
+                        outputStream.write(content, 0, length);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable failure) {
+                    asyncContext.complete();
+                }
+            });
         }
 
-        private void stats(final HttpServletResponse response) throws IOException {
-            response.setStatus(200);
-            byte[] stats =
-                ("total:" + totalRequestHandled.sum() +
-                    ",fixed:" + fixedRequestHandled.sum() +
-                    "echo:" + echoRequestHandled.sum())
-                    .getBytes(StandardCharsets.UTF_8);
+        /**
+         * The fixed content length, sized by the request {@link #SIZE_PARAMETER} when present, -1 when invalid.
+         */
+        private int fixedContentLength(HttpServletRequest request) {
+            var size = request.getParameter(SIZE_PARAMETER);
+            if (size == null) {
+                return benchmarkConfig.getContentBytesSize();
+            }
+            try {
+                int contentLength = Integer.parseInt(size);
+                return contentLength >= 0 && contentLength <= fixedContentResponse.length ? contentLength : -1;
+            } catch (NumberFormatException numberFormatEx) {
+                return -1;
+            }
+        }
 
-            response.setContentLength(stats.length);
+        private void fixed(final HttpServletResponse response, int contentLength) throws IOException {
+            response.setStatus(200);
+            //response.setContentLength(benchmarkConfig.getContentBytesSize());
             response.setHeader(HTTP_CONTENT_TYPE_HEADER, HTTP_CONTENT_TYPE_OCTET_STREAM);
 
             OutputStream outputStream = response.getOutputStream();
-            IO.copy(new ByteArrayInputStream(stats), outputStream);
+            outputStream.write(fixedContentResponse, 0, contentLength);
             outputStream.flush();
         }
 
-        private void statsReset(final HttpServletResponse response) throws IOException {
-            totalRequestHandled.reset();
-            fixedRequestHandled.reset();
-            echoRequestHandled.reset();
+        /**
+         * Sets the cacheable resource validators and tells whether the conditional request matches the current
+         * version, which changes every cache change interval. The ETag is exact, the Last-Modified has the HTTP date
+         * seconds precision.
+         */
+        private boolean cachedNotModified(HttpServletRequest request, HttpServletResponse response) {
+            long changeInterval = benchmarkConfig.getCacheChangeIntervalMillis();
+            long version = changeInterval > 0 ? (System.currentTimeMillis() - startMillis) / changeInterval : 0;
+            long lastModifiedMillis = (startMillis + version * changeInterval) / 1000 * 1000;
+            var id = request.getParameter(ID_PARAMETER);
+            var etag = "\"" + (id == null ? "0" : id) + "-" + version + "\"";
+            response.setHeader(HTTP_ETAG_HEADER, etag);
+            response.setDateHeader(HTTP_LAST_MODIFIED_HEADER, lastModifiedMillis);
+            response.setHeader(HTTP_CACHE_CONTROL_HEADER, "max-age=" + benchmarkConfig.getCacheMaxAgeSeconds());
 
-            response.setStatus(200);
-            byte[] stats = "Ok".getBytes(StandardCharsets.UTF_8);
+            var ifNoneMatch = request.getHeader(HTTP_IF_NONE_MATCH_HEADER);
+            if (ifNoneMatch != null) {
+                return ifNoneMatch.contains(etag);
+            }
+            return request.getDateHeader(HTTP_IF_MODIFIED_SINCE_HEADER) >= lastModifiedMillis;
+        }
 
-            response.setContentLength(stats.length);
-            response.setHeader(HTTP_CONTENT_TYPE_HEADER, HTTP_CONTENT_TYPE_OCTET_STREAM);
+        /**
+         * Delays the configured share of the requests on the handling thread, like a slow backend call, in the server
+         * async scenario too.
+         */
+        private void injectLatency() {
+            if (ThreadLocalRandom.current().nextDouble() >= benchmarkConfig.getServerInjectedLatencyRatio()) {
+                return;
+            }
+            try {
+                Thread.sleep(benchmarkConfig.getServerInjectedLatencyMillis());
+            } catch (InterruptedException interruptedEx) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
+        private void prewarm(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            int holdMillis = intParameter(request, HOLD_PARAMETER);
+            if (holdMillis < 0) {
+                badRequest(response, "Invalid " + HOLD_PARAMETER + ": " + request.getParameter(HOLD_PARAMETER));
+                return;
+            }
+            try {
+                Thread.sleep(holdMillis);
+            } catch (InterruptedException interruptedEx) {
+                Thread.currentThread().interrupt();
+            }
+            response.setStatus(HttpStatus.NO_CONTENT_204);
+        }
+
+        /**
+         * Writes the events from the handling thread, one flush per event.
+         */
+        private void serverSentEvents(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            int messages = intParameter(request, MESSAGES_PARAMETER);
+            int size = intParameter(request, SIZE_PARAMETER);
+            int rate = intParameter(request, RATE_PARAMETER);
+            if (messages < 0 || size < 0 || size > fixedContentResponse.length || rate < 0) {
+                badRequest(response, "Invalid " + MESSAGES_PARAMETER + ", " + SIZE_PARAMETER + " or " +
+                    RATE_PARAMETER + ": " + request.getQueryString());
+                return;
+            }
+            response.setStatus(200);
+            response.setContentType(HTTP_CONTENT_TYPE_EVENT_STREAM);
+            response.setHeader(HTTP_CACHE_CONTROL_HEADER, "no-cache");
             OutputStream outputStream = response.getOutputStream();
-            IO.copy(new ByteArrayInputStream(stats), outputStream);
-            outputStream.flush();
+            var pacer = Pacer.of(rate);
+            pacer.restart();
+            for (int i = 0; i < messages; i++) {
+                pacer.acquire();
+                var sentEpochNanos = String.valueOf(BenchmarkUtils.epochNanos()).getBytes(StandardCharsets.US_ASCII);
+                outputStream.write(SSE_DATA_PREFIX);
+                outputStream.write(sentEpochNanos);
+                outputStream.write(' ');
+                outputStream.write(fixedContentResponse, 0, Math.max(size - sentEpochNanos.length - 1, 0));
+                outputStream.write(SSE_EVENT_END);
+                outputStream.flush();
+            }
+        }
+
+        /**
+         * The non negative int query parameter, 0 when absent and -1 when invalid.
+         */
+        private int intParameter(HttpServletRequest request, String name) {
+            var value = request.getParameter(name);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                return Math.max(Integer.parseInt(value), -1);
+            } catch (NumberFormatException numberFormatEx) {
+                return -1;
+            }
+        }
+
+        private void badRequest(final HttpServletResponse response, String message) throws IOException {
+            response.setStatus(HttpStatus.BAD_REQUEST_400);
+            try (Writer writer = response.getWriter()) {
+                writer.write(message);
+                writer.flush();
+            }
         }
     }
 }
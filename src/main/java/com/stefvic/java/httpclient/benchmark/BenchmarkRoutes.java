@@ -0,0 +1,156 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Spreads the benchmark requests across the server routes ({@code host:port}) and keeps per route stats, so the
+ * per route connection pool limits of the clients are exercised the same way a service fan-out does.
+ */
+final class BenchmarkRoutes {
+
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    private final List<Route> routes;
+    private final Distribution distribution;
+    private final AtomicLong roundRobin = new AtomicLong();
+    private final double[] zipfCumulativeProbabilities;
+
+    private BenchmarkRoutes(List<Route> routes, Distribution distribution) {
+        this.routes = routes;
+        this.distribution = distribution;
+        this.zipfCumulativeProbabilities = zipfCumulativeProbabilities(routes.size());
+    }
+
+    static BenchmarkRoutes of(BenchmarkConfig benchmarkConfig) {
+        var routes = new ArrayList<Route>(benchmarkConfig.getServerPorts());
+        for (int i = 0; i < benchmarkConfig.getServerPorts(); i++) {
+            routes.add(new Route(benchmarkConfig.getPort() + i));
+        }
+        return new BenchmarkRoutes(Collections.unmodifiableList(routes),
+                                   Distribution.parse(benchmarkConfig.getRouteDistribution()));
+    }
+
+    private static double[] zipfCumulativeProbabilities(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1.0 / Math.pow(rank, ZIPF_EXPONENT);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    Route next() {
+        if (routes.size() == 1) {
+            return routes.get(0);
+        }
+        switch (distribution) {
+            case RANDOM:
+                return routes.get(ThreadLocalRandom.current().nextInt(routes.size()));
+            case ZIPFIAN:
+                int index = Arrays.binarySearch(zipfCumulativeProbabilities, ThreadLocalRandom.current().nextDouble());
+                return routes.get(Math.min(index < 0 ? -index - 1 : index, routes.size() - 1));
+            default:
+                return routes.get((int) (roundRobin.getAndIncrement() % routes.size()));
+        }
+    }
+
+    /**
+     * All routes latency merged into one histogram.
+     */
+    LatencyHistogram latency() {
+        var latency = new LatencyHistogram();
+        routes.forEach(route -> latency.add(route.latency));
+        return latency;
+    }
+
+    long errors() {
+        return routes.stream().mapToLong(route -> route.errors.sum()).sum();
+    }
+
+    void reset() {
+        routes.forEach(Route::reset);
+    }
+
+    void printStats(String httpMethod, Duration duration) {
+        if (routes.size() == 1) {
+            return;
+        }
+        var seconds = Math.max(duration.toMillis(), 1) / 1000.0;
+        System.out.println(httpMethod + " per route stats, routes '" + routes.size() + "' distribution '" +
+                               distribution + "':");
+        routes.forEach(route -> System.out.printf(
+            "  route %s requests=%d errors=%d requestsPerSecond=%.1f maxInFlight=%d latency: %s%n",
+            route.port,
+            route.latency.count(),
+            route.errors.sum(),
+            route.latency.count() / seconds,
+            route.maxInFlight.get(),
+            route.latency.toMillisSummary()));
+    }
+
+    enum Distribution {
+        ROUND_ROBIN,
+        RANDOM,
+        ZIPFIAN;
+
+        static Distribution parse(String distribution) {
+            return valueOf(distribution.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+    }
+
+    static final class Route {
+
+        private final int port;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+
+        private Route(int port) {
+            this.port = port;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        HttpClientResponse send(Supplier<HttpClientResponse> request) {
+            maxInFlight.accumulate(inFlight.incrementAndGet());
+            long start = System.nanoTime();
+            try {
+                var response = request.get();
+                if (!response.isSuccess()) {
+                    errors.increment();
+                }
+                return response;
+            } catch (RuntimeException e) {
+                errors.increment();
+                throw e;
+            } finally {
+                latency.recordSince(start);
+                inFlight.decrementAndGet();
+            }
+        }
+
+        private void reset() {
+            latency.reset();
+            errors.reset();
+            maxInFlight.reset();
+        }
+    }
+}
@@ -1,49 +1,79 @@
 package com.stefvic.java.httpclient.benchmark;
 
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.CACHED_RESOURCE;
 import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.ECHO_RESOURCE;
 import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.FIXED_RESOURCE;
-import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.STATS_RESET_RESOURCE;
-import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.STATS_RESOURCE;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.ID_PARAMETER;
 import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONNECTION_CLOSE;
 import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONNECTION_HEADER;
 import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_HEADER;
 import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_OCTET_STREAM;
+import static com.stefvic.java.httpclient.benchmark.ServerMetrics.METRICS_RESET_RESOURCE;
+import static com.stefvic.java.httpclient.benchmark.ServerMetrics.METRICS_RESOURCE;
+import static com.stefvic.java.httpclient.benchmark.ServerMetrics.PREFIX;
+import static com.stefvic.java.httpclient.benchmark.ServerMetrics.REQUEST_DURATION;
 import static java.util.function.Predicate.not;
 
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 final class BenchmarkRunner {
 
-    private static final String LOCAL_HOST = "http://127.0.0.1";
-
     private BenchmarkRunner() {
         throw new AssertionError("No instance");
     }
 
-    static void run(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
+    static void run(HttpAgentClient benchmarkedClient, BenchmarkConfig benchmarkConfig) {
+        CpuAffinity.pin(benchmarkConfig.getClientCpus());
         BenchmarkUtils.printJavaOsInfo();
         System.out.println(benchmarkConfig);
 
+        var httpAgentClient = CachingHttpAgentClient.withCache(benchmarkedClient, benchmarkConfig);
         var concurrency = benchmarkConfig.getConcurrency();
+        var routes = BenchmarkRoutes.of(benchmarkConfig);
         ExecutorService executor = null;
-        try {
+        try (var churnMonitor = new ChurnMonitor(benchmarkConfig, httpAgentClient.connectStats())) {
             executor = Executors.newFixedThreadPool(concurrency);
+            churnMonitor.start();
 
-            warmup(executor, httpAgentClient, benchmarkConfig);
-
-            benchmark(executor, httpAgentClient, benchmarkConfig);
+            if (benchmarkConfig.isPrewarm()) {
+                PrewarmBenchmark.prewarm(httpAgentClient, benchmarkConfig);
+            }
+            warmup(executor, httpAgentClient, benchmarkConfig, routes, churnMonitor);
+
+            var workload = workload(benchmarkConfig);
+            if (benchmarkConfig.isStreamScenario()) {
+                if (benchmarkedClient instanceof StreamingAgentClient) {
+                    StreamingBenchmark.run((StreamingAgentClient) benchmarkedClient, benchmarkConfig);
+                } else {
+                    System.out.println(benchmarkedClient.getClass().getSimpleName() +
+                                           " has no streaming support, the stream scenario is skipped");
+                }
+            } else if (benchmarkConfig.isHedgeScenario()) {
+                HedgeBenchmark.run(executor, httpAgentClient, benchmarkConfig, routes);
+            } else if (benchmarkConfig.isCapacitySearch()) {
+                CapacitySearch.run(executor, httpAgentClient, benchmarkConfig, routes);
+            } else if (workload != null) {
+                WorkloadBenchmark.run(executor, httpAgentClient, benchmarkConfig, routes, workload);
+            } else {
+                benchmark(executor, httpAgentClient, benchmarkConfig, routes, churnMonitor);
+            }
         } finally {
             if (executor != null) {
                 executor.shutdownNow();
@@ -51,26 +81,44 @@ final class BenchmarkRunner {
         }
     }
 
-    private static void benchmark(ExecutorService executor, HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
+    private static Workload workload(BenchmarkConfig benchmarkConfig) {
+        if (!benchmarkConfig.getWorkloadReplay().isEmpty()) {
+            return Workload.fromAccessLog(Path.of(benchmarkConfig.getWorkloadReplay()),
+                                          benchmarkConfig.getWorkloadReplaySpeed());
+        }
+        if (!benchmarkConfig.getWorkloadProfile().isEmpty()) {
+            return Workload.fromProfile(Path.of(benchmarkConfig.getWorkloadProfile()), benchmarkConfig);
+        }
+        return null;
+    }
+
+    private static void benchmark(ExecutorService executor,
+                                  HttpAgentClient httpAgentClient,
+                                  BenchmarkConfig benchmarkConfig,
+                                  BenchmarkRoutes routes,
+                                  ChurnMonitor churnMonitor) {
         var requests = benchmarkConfig.getRequests();
         var concurrency = benchmarkConfig.getConcurrency();
         var postBody = BenchmarkUtils.randomContent(benchmarkConfig.getContentBytesSize());
+        var pacer = churnPacer(benchmarkConfig);
 
         printStartBenchmark("GET", requests);
         long start = System.nanoTime();
+        pacer.restart();
         var completedGets = sendRequestAndWaitAllForCompletion(executor, requests,
-                                                               benchmarkGet(httpAgentClient, benchmarkConfig));
+                                                               pacer.paced(benchmarkGet(httpAgentClient, benchmarkConfig, routes)));
         long end = System.nanoTime();
-        printEndBenchmark("GET", requests, concurrency, Duration.ofNanos(end - start));
+        printEndBenchmark("GET", requests, concurrency, Duration.ofNanos(end - start), httpAgentClient,
+                          benchmarkConfig, routes, churnMonitor);
 
         printStartBenchmark("POST", requests);
         start = System.nanoTime();
+        pacer.restart();
         var completedPosts = sendRequestAndWaitAllForCompletion(executor, requests,
-                                                                benchmarkPost(httpAgentClient, benchmarkConfig, postBody));
+                                                                pacer.paced(benchmarkPost(httpAgentClient, benchmarkConfig, routes, postBody)));
         end = System.nanoTime();
-        printEndBenchmark("POST", requests, concurrency, Duration.ofNanos(end - start));
-
-        benchmarkServerStatsAndReset(httpAgentClient, benchmarkConfig);
+        printEndBenchmark("POST", requests, concurrency, Duration.ofNanos(end - start), httpAgentClient,
+                          benchmarkConfig, routes, churnMonitor);
 
         verifyBenchmarkAllRequestSucceed(benchmarkConfig, completedGets, completedPosts);
     }
@@ -95,35 +143,150 @@ final class BenchmarkRunner {
         System.out.println("\nStart benchmarking " + httpMethod + " requests: " + requests);
     }
 
-    private static void printEndBenchmark(String httpMethod, int requests, int concurrency, Duration duration) {
+    private static void printEndBenchmark(String httpMethod,
+                                          int requests,
+                                          int concurrency,
+                                          Duration duration,
+                                          HttpAgentClient httpAgentClient,
+                                          BenchmarkConfig benchmarkConfig,
+                                          BenchmarkRoutes routes,
+                                          ChurnMonitor churnMonitor) {
         System.out.println(httpMethod + " '" + requests + "' requests completed in: " + duration.toMillis() + " millis");
         System.out.println(httpMethod + " requests per seconds on concurrency '" + concurrency +
                                "' : " + (double) requests / duration.toSeconds());
+        var latency = routes.latency();
+        System.out.println(httpMethod + " latency: " + latency.toMillisSummary());
+        routes.printStats(httpMethod, duration);
+        routes.reset();
+        churnMonitor.printStats(httpMethod, duration);
+        churnMonitor.reset();
+        httpAgentClient.cacheStats().ifPresent(cacheStats -> System.out.println(httpMethod + " cache stats: " +
+                                                                                     cacheStats.stats(duration)));
+        printServerMetricsAndReset(httpMethod, httpAgentClient, benchmarkConfig, latency);
+    }
+
+    /**
+     * Scrapes the server metrics on the phase boundary, to separate the server handling time from the client observed
+     * time, then resets the server metrics and the client cache stats for the next phase.
+     */
+    static void printServerMetricsAndReset(String phase,
+                                           HttpAgentClient httpAgentClient,
+                                           BenchmarkConfig benchmarkConfig,
+                                           LatencyHistogram clientLatency) {
+        var samples = ServerMetrics.parse(benchmarkServerGet(httpAgentClient, benchmarkConfig, METRICS_RESOURCE));
+        long count = 0;
+        double sumSeconds = 0;
+        Map<Double, Double> buckets = new TreeMap<>();
+        for (Entry<String, Double> sample : samples.entrySet()) {
+            var name = sample.getKey();
+            if (name.startsWith(PREFIX + REQUEST_DURATION + "_count{")) {
+                count += sample.getValue().longValue();
+            } else if (name.startsWith(PREFIX + REQUEST_DURATION + "_sum{")) {
+                sumSeconds += sample.getValue();
+            } else if (name.startsWith(PREFIX + REQUEST_DURATION + "_bucket{")) {
+                buckets.merge(bucketUpperBound(name), sample.getValue(), Double::sum);
+            }
+        }
+        var serverMeanMillis = count == 0 ? 0 : sumSeconds * 1000 / count;
+        var clientMeanMillis = clientLatency.mean() / TimeUnit.MILLISECONDS.toNanos(1);
+        System.out.printf("%s server handling: requests=%d mean=%.3f p50<=%.3f p99<=%.3f (millis), client observed " +
+                              "mean=%.3f (millis), outside the server mean=%.3f (millis)%n",
+                          phase,
+                          count,
+                          serverMeanMillis,
+                          bucketsPercentileMillis(buckets, count, 50),
+                          bucketsPercentileMillis(buckets, count, 99),
+                          clientMeanMillis,
+                          clientMeanMillis - serverMeanMillis);
+        System.out.printf("%s server connections: max=%.0f opened=%.0f busyThreadsMax=%.0f%n",
+                          phase,
+                          samples.getOrDefault(PREFIX + "connections_max", 0.0),
+                          samples.getOrDefault(PREFIX + "connections_total", 0.0),
+                          samples.getOrDefault(PREFIX + "thread_pool_busy_threads_max", 0.0));
+
+        resetServerMetrics(httpAgentClient, benchmarkConfig);
+    }
+
+    /**
+     * Resets the server metrics, then the client cache stats, the metrics requests are not part of the next phase.
+     */
+    static void resetServerMetrics(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
+        benchmarkServerGet(httpAgentClient, benchmarkConfig, METRICS_RESET_RESOURCE);
+        httpAgentClient.cacheStats().ifPresent(CacheStats::reset);
+    }
+
+    private static double bucketUpperBound(String bucketSample) {
+        var le = bucketSample.substring(bucketSample.indexOf("le=\"") + 4, bucketSample.lastIndexOf('"'));
+        return le.equals("+Inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(le);
+    }
+
+    /**
+     * The upper bound of the bucket holding the percentile, in millis.
+     */
+    private static double bucketsPercentileMillis(Map<Double, Double> buckets, long count, double percentile) {
+        var rank = Math.max(1, Math.ceil(percentile / 100.0 * count));
+        for (Entry<Double, Double> bucket : buckets.entrySet()) {
+            if (bucket.getValue() >= rank) {
+                return bucket.getKey() * 1000;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
     }
 
-    private static void warmup(ExecutorService executor,
-                               HttpAgentClient httpAgentClient,
-                               BenchmarkConfig benchmarkConfig) {
+    /**
+     * Paces the churn scenario requests, each of them opens a new connection.
+     */
+    private static Pacer churnPacer(BenchmarkConfig benchmarkConfig) {
+        return Pacer.of(benchmarkConfig.isChurnScenario() ? benchmarkConfig.getChurnConnectsPerSecond() : 0);
+    }
+
+    static void warmup(ExecutorService executor,
+                       HttpAgentClient httpAgentClient,
+                       BenchmarkConfig benchmarkConfig,
+                       BenchmarkRoutes routes,
+                       ChurnMonitor churnMonitor) {
         var concurrency = benchmarkConfig.getConcurrency();
         var requests = benchmarkConfig.getRequests();
         var warmupRequests = Math.max(requests / 10, concurrency);
         var postBody = BenchmarkUtils.randomContent(benchmarkConfig.getContentBytesSize());
+        var pacer = churnPacer(benchmarkConfig);
         System.out.println("Warmup requests: " + warmupRequests);
 
         // warmup GET by half of total warmupRequests
         sendRequestAndWaitAllForCompletion(executor, warmupRequests / 2,
-                                           benchmarkGet(httpAgentClient, benchmarkConfig));
+                                           pacer.paced(benchmarkGet(httpAgentClient, benchmarkConfig, routes)));
 
         // warmup POST by half of total warmupRequests
         sendRequestAndWaitAllForCompletion(executor, warmupRequests / 2,
-                                           benchmarkPost(httpAgentClient, benchmarkConfig, postBody));
+                                           pacer.paced(benchmarkPost(httpAgentClient, benchmarkConfig, routes, postBody)));
+        routes.reset();
+        churnMonitor.reset();
 
-        benchmarkServerStatsAndReset(httpAgentClient, benchmarkConfig);
+        // the cache stays warm, only its stats are reset
+        resetServerMetrics(httpAgentClient, benchmarkConfig);
     }
 
-    private static void benchmarkServerStatsAndReset(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
-        System.out.println("\nBenchmark server stats: " + benchmarkServerGetStats(httpAgentClient, benchmarkConfig));
-        System.out.println("Benchmark server stats reset: " + benchmarkServerStatsReset(httpAgentClient, benchmarkConfig));
+    /**
+     * Runs a measured phase without printing, the latency and errors are taken from the routes.
+     */
+    static PhaseResult measurePhase(String name,
+                                    ExecutorService executor,
+                                    int requests,
+                                    Supplier<HttpClientResponse> httpClientResponseSupplier,
+                                    BenchmarkRoutes routes) {
+        routes.reset();
+        long startEpochNanos = BenchmarkUtils.epochNanos();
+        long start = System.nanoTime();
+        try {
+            sendRequestAndWaitAllForCompletion(executor, requests, httpClientResponseSupplier);
+        } catch (CompletionException completionEx) {
+            // failed requests are counted by the routes
+        }
+        long end = System.nanoTime();
+        var result = new PhaseResult(name, requests, routes.errors(), startEpochNanos,
+                                     startEpochNanos + (end - start), routes.latency());
+        routes.reset();
+        return result;
     }
 
     private static List<CompletableFuture<HttpClientResponse>> sendRequestAndWaitAllForCompletion(
@@ -140,36 +303,61 @@ final class BenchmarkRunner {
         return sendFeatures;
     }
 
-    private static Supplier<HttpClientResponse> benchmarkGet(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
-        return () -> httpAgentClient.get(URI.create(LOCAL_HOST + ":" + benchmarkConfig.getPort() + FIXED_RESOURCE),
-                                         toHttpClientContext(benchmarkConfig));
+    static Supplier<HttpClientResponse> benchmarkGet(HttpAgentClient httpAgentClient,
+                                                     BenchmarkConfig benchmarkConfig,
+                                                     BenchmarkRoutes routes) {
+        return () -> {
+            var route = routes.next();
+            var resource = getResource(benchmarkConfig);
+            return route.send(() -> httpAgentClient.get(target(benchmarkConfig, route.getPort(), resource),
+                                                        toHttpClientContext(benchmarkConfig)));
+        };
     }
 
-    private static Supplier<HttpClientResponse> benchmarkPost(HttpAgentClient httpAgentClient,
-                                                              BenchmarkConfig benchmarkConfig,
-                                                              byte[] body) {
-        return () -> httpAgentClient.post(URI.create(LOCAL_HOST + ":" + benchmarkConfig.getPort() + ECHO_RESOURCE),
-                                          toHttpClientContext(benchmarkConfig, body));
+    /**
+     * The cache scenario GETs pick uniformly one of the cacheable resources.
+     */
+    private static String getResource(BenchmarkConfig benchmarkConfig) {
+        if (!benchmarkConfig.isCacheScenario()) {
+            return FIXED_RESOURCE;
+        }
+        return CACHED_RESOURCE + "?" + ID_PARAMETER + "=" +
+            ThreadLocalRandom.current().nextInt(benchmarkConfig.getCacheResources());
     }
 
-    private static String benchmarkServerGetStats(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
-        var response = httpAgentClient.get(URI.create(LOCAL_HOST + ":" + benchmarkConfig.getPort() + STATS_RESOURCE),
-                                           toHttpClientContext(benchmarkConfig));
-        return new String(response.getResponseBody(), StandardCharsets.UTF_8);
+    static Supplier<HttpClientResponse> benchmarkPost(HttpAgentClient httpAgentClient,
+                                                      BenchmarkConfig benchmarkConfig,
+                                                      BenchmarkRoutes routes,
+                                                      byte[] body) {
+        return () -> {
+            var route = routes.next();
+            return route.send(() -> httpAgentClient.post(target(benchmarkConfig, route.getPort(), ECHO_RESOURCE),
+                                                         toHttpClientContext(benchmarkConfig, body)));
+        };
     }
 
-    private static String benchmarkServerStatsReset(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
-        var response = httpAgentClient.get(URI.create(LOCAL_HOST + ":" + benchmarkConfig.getPort() + STATS_RESET_RESOURCE),
-                                           toHttpClientContext(benchmarkConfig));
+    private static String benchmarkServerGet(HttpAgentClient httpAgentClient,
+                                             BenchmarkConfig benchmarkConfig,
+                                             String resource) {
+        var response = httpAgentClient.get(target(benchmarkConfig, resource), toHttpClientContext(benchmarkConfig));
         return new String(response.getResponseBody(), StandardCharsets.UTF_8);
     }
 
-    private static HttpClientContext toHttpClientContext(BenchmarkConfig benchmarkConfig, byte[] body) {
+    private static URI target(BenchmarkConfig benchmarkConfig, String resource) {
+        return target(benchmarkConfig, benchmarkConfig.getPort(), resource);
+    }
+
+    static URI target(BenchmarkConfig benchmarkConfig, int port, String resource) {
+        var scheme = benchmarkConfig.isHttpsScenario() ? "https" : "http";
+        return URI.create(scheme + "://" + benchmarkConfig.getServerHost() + ":" + port + resource);
+    }
+
+    static HttpClientContext toHttpClientContext(BenchmarkConfig benchmarkConfig, byte[] body) {
         var httpClientContextBuilder = HttpClientContext.builder()
                                                         .connectTimeoutMillis(benchmarkConfig.getClientConnectTimeoutMillis())
                                                         .socketTimeoutMillis(benchmarkConfig.getClientSocketTimeoutMillis());
         List<Entry<String, List<String>>> headers = new ArrayList<>(2);
-        if (!benchmarkConfig.isKeepAliveScenario()) {
+        if (!benchmarkConfig.isKeepAliveScenario() || benchmarkConfig.isChurnScenario()) {
             headers.add(Map.entry(HTTP_CONNECTION_HEADER, List.of(HTTP_CONNECTION_CLOSE)));
         }
         if (body != null) {
@@ -182,7 +370,7 @@ final class BenchmarkRunner {
         return httpClientContextBuilder.build();
     }
 
-    private static HttpClientContext toHttpClientContext(BenchmarkConfig benchmarkConfig) {
+    static HttpClientContext toHttpClientContext(BenchmarkConfig benchmarkConfig) {
         return toHttpClientContext(benchmarkConfig, null);
     }
 
@@ -0,0 +1,107 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+final class BenchmarkTls {
+
+    static final String KEY_STORE_TYPE = "PKCS12";
+    static final String KEY_STORE_PASSWORD = "benchmark";
+
+    /**
+     * Trusts any certificate and skips the endpoint identification, the benchmark server certificate is self-signed.
+     */
+    static final X509ExtendedTrustManager TRUST_ALL_MANAGER = new X509ExtendedTrustManager() {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    };
+
+    private BenchmarkTls() {
+        throw new AssertionError("No instance");
+    }
+
+    static SSLContext trustAllSslContext() {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{TRUST_ALL_MANAGER}, new SecureRandom());
+            return sslContext;
+        } catch (GeneralSecurityException securityEx) {
+            throw new IllegalStateException(securityEx);
+        }
+    }
+
+    /**
+     * Generates a self-signed key store by the {@code keytool} of the running JDK, the certificate is issued for the
+     * loopback address so the clients would pass the host name verification as well.
+     */
+    static Path generateSelfSignedKeyStore(String keyAlgorithm) {
+        try {
+            Path keyStoreDir = Files.createTempDirectory("benchmark-tls");
+            Path keyStore = keyStoreDir.resolve("benchmark.p12");
+            keyStore.toFile().deleteOnExit();
+            keyStoreDir.toFile().deleteOnExit();
+            var keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+            var process = new ProcessBuilder(List.of(keytool,
+                                                     "-genkeypair",
+                                                     "-alias", "benchmark",
+                                                     "-keyalg", keyAlgorithm,
+                                                     "-validity", "365",
+                                                     "-dname", "CN=127.0.0.1",
+                                                     "-ext", "SAN=ip:127.0.0.1,dns:localhost",
+                                                     "-storetype", KEY_STORE_TYPE,
+                                                     "-keystore", keyStore.toString(),
+                                                     "-storepass", KEY_STORE_PASSWORD,
+                                                     "-keypass", KEY_STORE_PASSWORD,
+                                                     "-noprompt"))
+                .redirectErrorStream(true)
+                .start();
+            var output = new String(process.getInputStream().readAllBytes());
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("Failed to generate self-signed key store: " + output);
+            }
+            return keyStore;
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException(ioEx);
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(interruptedEx);
+        }
+    }
+}
@@ -4,7 +4,10 @@ import com.stefvic.java.httpclient.benchmark.BenchmarkConfig.BenchmarkConfigBuil
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleFunction;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 
@@ -24,6 +27,7 @@ final class BenchmarkUtils {
         System.out.printf("JVM PID: %d \n", runtimeMxBean.getPid());
         System.out.printf("OS name: %s \n", System.getProperty("os.name"));
         System.out.printf("OS arch: %s \n", System.getProperty("os.arch"));
+        System.out.printf("CPU topology: %s \n", CpuAffinity.topology());
         System.out.println("*".repeat(80));
     }
 
@@ -40,6 +44,25 @@ final class BenchmarkUtils {
     }
 
 
+    static long epochNanos() {
+        var now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+
+    /**
+     * Creates the http agent client by its simple class name, from its {@link BenchmarkConfig} constructor.
+     */
+    static HttpAgentClient newHttpAgentClient(String clientName, BenchmarkConfig benchmarkConfig) {
+        try {
+            return Class.forName(HttpAgentClient.class.getPackageName() + "." + clientName)
+                        .asSubclass(HttpAgentClient.class)
+                        .getConstructor(BenchmarkConfig.class)
+                        .newInstance(benchmarkConfig);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unsupported http agent client '" + clientName + "'", e);
+        }
+    }
+
     static int secondsToMillis(int seconds) {
         return Math.toIntExact(Duration.ofSeconds(seconds).toMillis());
     }
@@ -48,12 +71,68 @@ final class BenchmarkUtils {
         BenchmarkConfigBuilder builder = BenchmarkConfig.builder();
         setIfPresentIntSysProperty(builder::concurrency, "benchmark.concurrency");
         setIfPresentIntSysProperty(builder::port, "benchmark.server.port");
+        setIfPresentStringSysProperty(builder::serverHost, "benchmark.server.host");
         setIfPresentIntSysProperty(builder::requests, "benchmark.requests");
         setIfPresentIntSysProperty(builder::contentBytesSize, "benchmark.content.bytes.size");
+        setIfPresentIntSysProperty(builder::serverPorts, "benchmark.server.ports");
+        setIfPresentStringSysProperty(builder::routeDistribution, "benchmark.route.distribution");
         setIfPresentIntSysProperty(builder::keepAliveScenario, "benchmark.keep.alive.scenario");
         setIfPresentIntSysProperty(builder::serverKeepAliveMillis, "benchmark.server.keep.alive.millis");
+        setIfPresentIntSysProperty(builder::serverAsyncScenario, "benchmark.server.async.scenario");
+        setIfPresentIntSysProperty(builder::serverThreads, "benchmark.server.threads");
+        setIfPresentIntSysProperty(builder::serverMaxContentBytes, "benchmark.server.max.content.bytes");
         setIfPresentIntSysProperty(builder::clientSocketTimeoutMillis, "benchmark.client.socket.timeout.millis");
         setIfPresentIntSysProperty(builder::clientConnectTimeoutMillis, "benchmark.client.connect.timeout.millis");
+        setIfPresentIntSysProperty(builder::churnScenario, "benchmark.churn.scenario");
+        setIfPresentIntSysProperty(builder::churnConnectsPerSecond, "benchmark.churn.connects.per.second");
+        setIfPresentIntSysProperty(builder::clientSoLingerSeconds, "benchmark.client.so.linger.seconds");
+        setIfPresentIntSysProperty(builder::clientSoReuseAddress, "benchmark.client.so.reuse.address");
+        setIfPresentStringSysProperty(builder::workloadProfile, "benchmark.workload.profile");
+        setIfPresentStringSysProperty(builder::workloadReplay, "benchmark.workload.replay");
+        setIfPresentDoubleSysProperty(builder::workloadReplaySpeed, "benchmark.workload.replay.speed");
+        setIfPresentIntSysProperty(builder::workers, "benchmark.workers");
+        setIfPresentIntSysProperty(builder::remoteWorkers, "benchmark.remote.workers");
+        setIfPresentStringSysProperty(builder::coordinatorHost, "benchmark.coordinator.host");
+        setIfPresentIntSysProperty(builder::coordinatorPort, "benchmark.coordinator.port");
+        setIfPresentIntSysProperty(builder::httpsScenario, "benchmark.https.scenario");
+        setIfPresentStringSysProperty(builder::tlsCipherSuites, "benchmark.tls.cipher.suites");
+        setIfPresentStringSysProperty(builder::tlsKeyAlgorithm, "benchmark.tls.key.algorithm");
+        setIfPresentIntSysProperty(builder::cacheScenario, "benchmark.cache.scenario");
+        setIfPresentIntSysProperty(builder::cacheResources, "benchmark.cache.resources");
+        setIfPresentIntSysProperty(builder::cacheChangeIntervalMillis, "benchmark.cache.change.interval.millis");
+        setIfPresentIntSysProperty(builder::cacheMaxAgeSeconds, "benchmark.cache.max.age.seconds");
+        setIfPresentIntSysProperty(builder::clientCacheEntries, "benchmark.client.cache.entries");
+        setIfPresentIntSysProperty(builder::clientCacheMaxBytes, "benchmark.client.cache.max.bytes");
+        setIfPresentIntSysProperty(builder::coldStartRequests, "benchmark.cold.start.requests");
+        setIfPresentIntSysProperty(builder::capacitySearch, "benchmark.capacity.search");
+        setIfPresentIntSysProperty(builder::capacitySloP99Millis, "benchmark.capacity.slo.p99.millis");
+        setIfPresentDoubleSysProperty(builder::capacityMaxErrorRatio, "benchmark.capacity.max.error.ratio");
+        setIfPresentIntSysProperty(builder::capacityStartRps, "benchmark.capacity.start.rps");
+        setIfPresentIntSysProperty(builder::capacityMaxRps, "benchmark.capacity.max.rps");
+        setIfPresentIntSysProperty(builder::capacityStepSeconds, "benchmark.capacity.step.seconds");
+        setIfPresentDoubleSysProperty(builder::capacityPrecision, "benchmark.capacity.precision");
+        setIfPresentIntSysProperty(builder::streamScenario, "benchmark.stream.scenario");
+        setIfPresentIntSysProperty(builder::streams, "benchmark.streams");
+        setIfPresentIntSysProperty(builder::streamMessages, "benchmark.stream.messages");
+        setIfPresentIntSysProperty(builder::streamMessageBytes, "benchmark.stream.message.bytes");
+        setIfPresentIntSysProperty(builder::streamRate, "benchmark.stream.rate");
+        setIfPresentIntSysProperty(builder::streamWindow, "benchmark.stream.window");
+        setIfPresentIntSysProperty(builder::hedgeScenario, "benchmark.hedge.scenario");
+        setIfPresentDoubleSysProperty(builder::hedgePercentile, "benchmark.hedge.percentile");
+        setIfPresentDoubleSysProperty(builder::hedgeBudgetRatio, "benchmark.hedge.budget.ratio");
+        setIfPresentIntSysProperty(builder::hedgeEstimatorWindow, "benchmark.hedge.estimator.window");
+        setIfPresentDoubleSysProperty(builder::serverInjectedLatencyRatio, "benchmark.server.injected.latency.ratio");
+        setIfPresentIntSysProperty(builder::serverInjectedLatencyMillis, "benchmark.server.injected.latency.millis");
+        setIfPresentStringSysProperty(builder::jdkExecutor, "benchmark.jdk.executor");
+        setIfPresentIntSysProperty(builder::jdkExecutorThreads, "benchmark.jdk.executor.threads");
+        setIfPresentIntSysProperty(builder::jdkClients, "benchmark.jdk.clients");
+        setIfPresentStringSysProperty(builder::jdkMatrixReport, "benchmark.jdk.matrix.report");
+        setIfPresentStringSysProperty(builder::serverCpus, "benchmark.server.cpus");
+        setIfPresentStringSysProperty(builder::clientCpus, "benchmark.client.cpus");
+        setIfPresentIntSysProperty(builder::prewarm, "benchmark.prewarm");
+        setIfPresentIntSysProperty(builder::prewarmConnections, "benchmark.prewarm.connections");
+        setIfPresentIntSysProperty(builder::prewarmHoldMillis, "benchmark.prewarm.hold.millis");
+        setIfPresentIntSysProperty(builder::prewarmMeasureMillis, "benchmark.prewarm.measure.millis");
 
         return builder.build();
     }
@@ -76,4 +155,22 @@ final class BenchmarkUtils {
         }
         setter.apply(Boolean.parseBoolean(sysPropVal));
     }
+
+    private static void setIfPresentStringSysProperty(Function<String, BenchmarkConfigBuilder> setter,
+                                                      String sysProperty) {
+        String sysPropVal = System.getProperty(sysProperty);
+        if (sysPropVal == null) {
+            return;
+        }
+        setter.apply(sysPropVal.trim());
+    }
+
+    private static void setIfPresentDoubleSysProperty(DoubleFunction<BenchmarkConfigBuilder> setter,
+                                                      String sysProperty) throws NumberFormatException {
+        String sysPropVal = System.getProperty(sysProperty);
+        if (sysPropVal == null) {
+            return;
+        }
+        setter.apply(Double.parseDouble(sysPropVal));
+    }
 }
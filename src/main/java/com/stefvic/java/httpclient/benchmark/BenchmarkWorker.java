@@ -0,0 +1,84 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import static com.stefvic.java.httpclient.benchmark.BenchmarkCoordinator.READY;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkCoordinator.RESULT;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkCoordinator.START;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Distributed benchmark worker, started by the {@link BenchmarkCoordinator} or by hand on another host.
+ * <p>
+ * Warms up, reports ready, waits for the coordinator synchronized start time, runs the measured GET and POST phases
+ * and sends back the phase results.
+ * <pre>
+ * BenchmarkWorker coordinatorHost coordinatorPort workerId clientSimpleClassName
+ * </pre>
+ */
+public final class BenchmarkWorker {
+
+    private BenchmarkWorker() {
+        throw new AssertionError("No instance");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 4) {
+            throw new IllegalArgumentException("Expected arguments: coordinatorHost coordinatorPort workerId client");
+        }
+        var workerId = args[2];
+        var benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        CpuAffinity.pin(benchmarkConfig.getClientCpus());
+        var httpAgentClient = CachingHttpAgentClient.withCache(BenchmarkUtils.newHttpAgentClient(args[3], benchmarkConfig),
+                                                               benchmarkConfig);
+        var routes = BenchmarkRoutes.of(benchmarkConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(benchmarkConfig.getConcurrency());
+        try (var socket = new Socket(args[0], Integer.parseInt(args[1]));
+             var churnMonitor = new ChurnMonitor(benchmarkConfig, httpAgentClient.connectStats())) {
+            var input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            var output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            BenchmarkRunner.warmup(executor, httpAgentClient, benchmarkConfig, routes, churnMonitor);
+            output.writeByte(READY);
+            output.writeUTF(workerId);
+            output.flush();
+            System.out.println("Benchmark worker '" + workerId + "' is ready");
+
+            if (input.readByte() != START) {
+                throw new IllegalStateException("Benchmark worker '" + workerId + "' expected the start message");
+            }
+            long waitMillis = input.readLong() - System.currentTimeMillis();
+            if (waitMillis > 0) {
+                Thread.sleep(waitMillis);
+            }
+
+            var requests = benchmarkConfig.getRequests();
+            var postBody = BenchmarkUtils.randomContent(benchmarkConfig.getContentBytesSize());
+            var results = List.of(
+                BenchmarkRunner.measurePhase("GET", executor, requests,
+                                             BenchmarkRunner.benchmarkGet(httpAgentClient, benchmarkConfig, routes),
+                                             routes),
+                BenchmarkRunner.measurePhase("POST", executor, requests,
+                                             BenchmarkRunner.benchmarkPost(httpAgentClient, benchmarkConfig, routes,
+                                                                           postBody),
+                                             routes));
+
+            output.writeByte(RESULT);
+            output.writeInt(results.size());
+            for (PhaseResult result : results) {
+                result.writeTo(output);
+            }
+            output.flush();
+            System.out.println("Benchmark worker '" + workerId + "' completed: " + results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client side HTTP cache stats per lookup outcome, recorded by the adapters native caches or by the
+ * {@link CachingHttpAgentClient}.
+ */
+final class CacheStats {
+
+    enum Outcome {
+        /**
+         * Served from the cache without a network round trip.
+         */
+        HIT,
+        /**
+         * Conditional request answered by a 304, served from the cache.
+         */
+        REVALIDATED,
+        MISS
+    }
+
+    private final Map<Outcome, LatencyHistogram> latency = new EnumMap<>(Outcome.class);
+    private final LongAdder bytesSaved = new LongAdder();
+
+    CacheStats() {
+        for (Outcome outcome : Outcome.values()) {
+            latency.put(outcome, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * @param savedBytes the response body bytes which were not transferred from the server
+     */
+    void record(Outcome outcome, long startNanos, long savedBytes) {
+        latency.get(outcome).recordSince(startNanos);
+        bytesSaved.add(savedBytes);
+    }
+
+    void reset() {
+        latency.values().forEach(LatencyHistogram::reset);
+        bytesSaved.reset();
+    }
+
+    String stats(Duration duration) {
+        var lookups = latency.values().stream().mapToLong(LatencyHistogram::count).sum();
+        var stats = new StringBuilder(String.format(
+            "lookups=%d hitRatio=%.3f revalidatedRatio=%.3f savedMiB=%.2f savedMiB/s=%.2f",
+            lookups,
+            ratio(latency.get(Outcome.HIT).count(), lookups),
+            ratio(latency.get(Outcome.REVALIDATED).count(), lookups),
+            bytesSaved.sum() / (1024.0 * 1024),
+            bytesSaved.sum() / (1024.0 * 1024) / (Math.max(duration.toMillis(), 1) / 1000.0)));
+        latency.forEach((outcome, histogram) -> stats.append(System.lineSeparator())
+                                                     .append("  ")
+                                                     .append(outcome)
+                                                     .append(" latency: ")
+                                                     .append(histogram.toMillisSummary()));
+        return stats.toString();
+    }
+
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+}
@@ -0,0 +1,208 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CACHE_CONTROL_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_ETAG_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_IF_MODIFIED_SINCE_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_IF_NONE_MATCH_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_LAST_MODIFIED_HEADER;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared in-memory LRU response cache around the clients without a native HTTP cache, the JDK and Reactor Netty ones.
+ * <p>
+ * Caches the successful GET responses which carry a {@code Cache-Control max-age} and a validator, serves them while
+ * fresh and revalidates them by a conditional request afterwards. A POST invalidates the target entry. Concurrent
+ * misses of the same target are not coalesced, every one of them goes to the server.
+ */
+final class CachingHttpAgentClient implements HttpAgentClient {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private final HttpAgentClient delegate;
+    private final Map<URI, CacheEntry> entries;
+    private final CacheStats cacheStats = new CacheStats();
+
+    private CachingHttpAgentClient(HttpAgentClient delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Decorates the client by the in-memory cache on the cache scenario, unless it has a native cache.
+     */
+    static HttpAgentClient withCache(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
+        if (!benchmarkConfig.isCacheScenario() || httpAgentClient.cacheStats().isPresent()) {
+            return httpAgentClient;
+        }
+        return new CachingHttpAgentClient(httpAgentClient, benchmarkConfig.getClientCacheEntries());
+    }
+
+    private static HttpClientContext conditional(HttpClientContext httpClientContext, CacheEntry entry) {
+        Map<String, List<String>> headers = new HashMap<>(httpClientContext.getHeaders());
+        entry.etag.ifPresent(etag -> headers.put(HTTP_IF_NONE_MATCH_HEADER, List.of(etag)));
+        entry.lastModified.ifPresent(lastModified -> headers.put(HTTP_IF_MODIFIED_SINCE_HEADER, List.of(lastModified)));
+        return HttpClientContext.builder()
+                                .socketTimeoutMillis(httpClientContext.getSocketTimeoutMillis())
+                                .connectTimeoutMillis(httpClientContext.getConnectTimeoutMillis())
+                                .postBody(httpClientContext.getPostBody())
+                                .headers(headers)
+                                .build();
+    }
+
+    /**
+     * The response {@code max-age} in seconds, -1 when it must not be stored.
+     */
+    private static long maxAgeSeconds(HttpClientResponse response) {
+        var cacheControl = response.header(HTTP_CACHE_CONTROL_HEADER).orElse("").toLowerCase(Locale.ROOT);
+        if (cacheControl.contains("no-store")) {
+            return -1;
+        }
+        if (cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        for (String directive : cacheControl.split(",")) {
+            var nameValue = directive.trim().split("=", 2);
+            if (nameValue.length == 2 && nameValue[0].equals("max-age")) {
+                try {
+                    return Long.parseLong(nameValue[1].trim());
+                } catch (NumberFormatException numberFormatEx) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public HttpClientResponse get(URI target, HttpClientContext httpClientContext) {
+        long start = System.nanoTime();
+        var entry = entry(target);
+        if (entry != null && entry.isFresh(start)) {
+            cacheStats.record(CacheStats.Outcome.HIT, start, entry.response.responseBodyLength());
+            return entry.response;
+        }
+        return cache(target, entry, start, delegate.get(target, requestContext(httpClientContext, entry)));
+    }
+
+    /**
+     * The misses and revalidations go through the delegate async get, cancelling the result cancels its exchange.
+     */
+    @Override
+    public CompletableFuture<HttpClientResponse> getAsync(URI target,
+                                                          HttpClientContext httpClientContext,
+                                                          Executor executor) {
+        long start = System.nanoTime();
+        var entry = entry(target);
+        if (entry != null && entry.isFresh(start)) {
+            cacheStats.record(CacheStats.Outcome.HIT, start, entry.response.responseBodyLength());
+            return CompletableFuture.completedFuture(entry.response);
+        }
+        var exchange = delegate.getAsync(target, requestContext(httpClientContext, entry), executor);
+        var response = exchange.thenApply(delegateResponse -> cache(target, entry, start, delegateResponse));
+        response.whenComplete((httpClientResponse, failure) -> {
+            if (failure instanceof CancellationException) {
+                exchange.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    private CacheEntry entry(URI target) {
+        synchronized (entries) {
+            return entries.get(target);
+        }
+    }
+
+    private static HttpClientContext requestContext(HttpClientContext httpClientContext, CacheEntry entry) {
+        return entry == null ? httpClientContext : conditional(httpClientContext, entry);
+    }
+
+    /**
+     * Stores or refreshes the entry by the delegate response, returns the response to serve.
+     */
+    private HttpClientResponse cache(URI target, CacheEntry entry, long start, HttpClientResponse response) {
+        if (entry != null && response.getStatusCode() == HTTP_NOT_MODIFIED) {
+            var maxAgeSeconds = Math.max(maxAgeSeconds(response), 0);
+            store(target, new CacheEntry(entry.response, entry.etag, entry.lastModified, System.nanoTime(),
+                                         maxAgeSeconds));
+            cacheStats.record(CacheStats.Outcome.REVALIDATED, start, entry.response.responseBodyLength());
+            return entry.response;
+        }
+        var maxAgeSeconds = maxAgeSeconds(response);
+        var etag = response.header(HTTP_ETAG_HEADER);
+        var lastModified = response.header(HTTP_LAST_MODIFIED_HEADER);
+        if (response.isSuccess() && maxAgeSeconds >= 0 && (etag.isPresent() || lastModified.isPresent())) {
+            store(target, new CacheEntry(response, etag, lastModified, System.nanoTime(), maxAgeSeconds));
+        }
+        cacheStats.record(CacheStats.Outcome.MISS, start, 0);
+        return response;
+    }
+
+    @Override
+    public HttpClientResponse post(URI target, HttpClientContext httpClientContext) {
+        synchronized (entries) {
+            entries.remove(target);
+        }
+        return delegate.post(target, httpClientContext);
+    }
+
+    @Override
+    public void prewarm(URI target, int connections) {
+        delegate.prewarm(target, connections);
+    }
+
+    @Override
+    public Optional<ConnectStats> connectStats() {
+        return delegate.connectStats();
+    }
+
+    @Override
+    public Optional<CacheStats> cacheStats() {
+        return Optional.of(cacheStats);
+    }
+
+    private void store(URI target, CacheEntry entry) {
+        synchronized (entries) {
+            entries.put(target, entry);
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final HttpClientResponse response;
+        private final Optional<String> etag;
+        private final Optional<String> lastModified;
+        private final long expiresNanos;
+
+        private CacheEntry(HttpClientResponse response,
+                           Optional<String> etag,
+                           Optional<String> lastModified,
+                           long storedNanos,
+                           long maxAgeSeconds) {
+            this.response = response;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresNanos = storedNanos + TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+        }
+
+        private boolean isFresh(long nowNanos) {
+            return nowNanos - expiresNanos < 0;
+        }
+    }
+}
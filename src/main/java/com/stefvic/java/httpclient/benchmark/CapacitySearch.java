@@ -0,0 +1,161 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Max throughput under SLO search: offers an open loop GET load at a fixed rate for a step, and checks the p99 latency
+ * against the SLO, the error ratio against the threshold and the achieved against the offered throughput. The offered
+ * rate is doubled from the start rate until a step fails, then binary searched between the last passed and the first
+ * failed rates down to the configured precision.
+ * <p>
+ * The latency is measured from the scheduled send time, so the queueing behind a saturated client is counted. The
+ * client threads are bounded by the benchmark concurrency.
+ */
+final class CapacitySearch {
+
+    /**
+     * The achieved throughput ratio of the offered one for a step to be sustained.
+     */
+    private static final double MIN_SUSTAINED_RATIO = 0.95;
+
+    private CapacitySearch() {
+        throw new AssertionError("No instance");
+    }
+
+    static void run(ExecutorService executor,
+                    HttpAgentClient httpAgentClient,
+                    BenchmarkConfig benchmarkConfig,
+                    BenchmarkRoutes routes) {
+        var get = BenchmarkRunner.benchmarkGet(httpAgentClient, benchmarkConfig, routes);
+        var sloNanos = TimeUnit.MILLISECONDS.toNanos(benchmarkConfig.getCapacitySloP99Millis());
+        System.out.println("\nStart capacity search: p99 SLO " + benchmarkConfig.getCapacitySloP99Millis() +
+                               " millis, max error ratio " + benchmarkConfig.getCapacityMaxErrorRatio() +
+                               ", step " + benchmarkConfig.getCapacityStepSeconds() + " seconds");
+
+        List<Step> curve = new ArrayList<>();
+        Step passed = null;
+        Step failed = null;
+        var maxRate = benchmarkConfig.getCapacityMaxRps();
+        var maxRateReached = false;
+        double rate = Math.min(benchmarkConfig.getCapacityStartRps(), maxRate);
+        while (true) {
+            var step = step(executor, get, benchmarkConfig, routes, rate, sloNanos);
+            curve.add(step);
+            if (!step.passed) {
+                failed = step;
+                break;
+            }
+            passed = step;
+            if (rate >= maxRate) {
+                maxRateReached = true;
+                break;
+            }
+            // the last doubling is clamped, for the max rate itself to be measured
+            rate = Math.min(rate * 2, maxRate);
+        }
+        while (passed != null && failed != null &&
+            failed.offeredRps - passed.offeredRps > passed.offeredRps * benchmarkConfig.getCapacityPrecision()) {
+            var step = step(executor, get, benchmarkConfig, routes, (passed.offeredRps + failed.offeredRps) / 2,
+                            sloNanos);
+            curve.add(step);
+            if (step.passed) {
+                passed = step;
+            } else {
+                failed = step;
+            }
+        }
+
+        System.out.println("Capacity search latency versus load curve:");
+        curve.stream()
+             .sorted((left, right) -> Double.compare(left.offeredRps, right.offeredRps))
+             .forEach(step -> System.out.println("  " + step));
+        if (passed == null) {
+            System.out.println("Capacity: none, the start rate " + benchmarkConfig.getCapacityStartRps() +
+                                   " requests per second already misses the SLO");
+        } else {
+            System.out.printf("Capacity: %.0f requests per second at p99 %.3f <= %d millis%s%n",
+                              passed.achievedRps,
+                              passed.latency.valueAtPercentile(99) / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                              benchmarkConfig.getCapacitySloP99Millis(),
+                              maxRateReached ? ", the max rate was reached" : "");
+        }
+    }
+
+    private static Step step(ExecutorService executor,
+                             Supplier<HttpClientResponse> get,
+                             BenchmarkConfig benchmarkConfig,
+                             BenchmarkRoutes routes,
+                             double offeredRps,
+                             long sloNanos) {
+        var requests = Math.max(1, (long) (offeredRps * benchmarkConfig.getCapacityStepSeconds()));
+        var latency = new LatencyHistogram();
+        var failures = new LongAdder();
+        var pacer = Pacer.of(offeredRps);
+        routes.reset();
+
+        long start = System.nanoTime();
+        pacer.restart();
+        List<CompletableFuture<HttpClientResponse>> sent = new ArrayList<>();
+        for (long i = 0; i < requests; i++) {
+            long slot = pacer.acquire();
+            sent.add(CompletableFuture.supplyAsync(get, executor)
+                                      .whenComplete((response, failure) -> {
+                                          latency.recordSince(slot);
+                                          if (failure != null) {
+                                              failures.increment();
+                                          }
+                                      }));
+        }
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+                         .exceptionally(failure -> null)
+                         .join();
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+
+        // the not successful responses are counted by the routes, the failed requests too
+        var errors = Math.max(routes.errors(), failures.sum());
+        routes.reset();
+        var achievedRps = (requests - errors) * 1000.0 / Math.max(duration.toMillis(), 1);
+        var errorRatio = (double) errors / requests;
+        var passed = latency.valueAtPercentile(99) <= sloNanos &&
+            errorRatio <= benchmarkConfig.getCapacityMaxErrorRatio() &&
+            achievedRps >= offeredRps * MIN_SUSTAINED_RATIO;
+        var step = new Step(offeredRps, achievedRps, errorRatio, latency, passed);
+        System.out.println("Capacity step " + step);
+        return step;
+    }
+
+    private static final class Step {
+
+        private final double offeredRps;
+        private final double achievedRps;
+        private final double errorRatio;
+        private final LatencyHistogram latency;
+        private final boolean passed;
+
+        private Step(double offeredRps,
+                     double achievedRps,
+                     double errorRatio,
+                     LatencyHistogram latency,
+                     boolean passed) {
+            this.offeredRps = offeredRps;
+            this.achievedRps = achievedRps;
+            this.errorRatio = errorRatio;
+            this.latency = latency;
+            this.passed = passed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("offeredRps=%.0f achievedRps=%.0f errorRatio=%.4f %s latency: %s",
+                                 offeredRps, achievedRps, errorRatio, passed ? "PASS" : "FAIL",
+                                 latency.toMillisSummary());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Connection churn accounting: samples {@code /proc/net/tcp} and {@code /proc/net/tcp6} for the sockets in TIME_WAIT
+ * and the client ephemeral ports in use towards the benchmark server, reported next to the client connect stats.
+ * <p>
+ * Enabled by the churn scenario only. The socket tables are available on Linux only, elsewhere only the client
+ * connect stats are reported.
+ */
+final class ChurnMonitor implements AutoCloseable {
+
+    private static final List<Path> TCP_TABLES = List.of(Path.of("/proc/net/tcp"), Path.of("/proc/net/tcp6"));
+    private static final Path LOCAL_PORT_RANGE = Path.of("/proc/sys/net/ipv4/ip_local_port_range");
+    private static final String TCP_STATE_TIME_WAIT = "06";
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+    private final boolean enabled;
+    private final int firstServerPort;
+    private final int lastServerPort;
+    private final Optional<ConnectStats> connectStats;
+    private final boolean socketTablesAvailable;
+    private final LongAccumulator maxClientTimeWait = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxServerTimeWait = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxEphemeralPortsInUse = new LongAccumulator(Math::max, 0);
+    private ScheduledExecutorService sampler;
+
+    ChurnMonitor(BenchmarkConfig benchmarkConfig, Optional<ConnectStats> connectStats) {
+        this.enabled = benchmarkConfig.isChurnScenario();
+        this.firstServerPort = benchmarkConfig.getPort();
+        this.lastServerPort = benchmarkConfig.getPort() + benchmarkConfig.getServerPorts() - 1;
+        this.connectStats = connectStats;
+        this.socketTablesAvailable = Files.isReadable(TCP_TABLES.get(0));
+    }
+
+    private static int port(String hexAddress) {
+        return Integer.parseInt(hexAddress.substring(hexAddress.lastIndexOf(':') + 1), 16);
+    }
+
+    private static String localPortRange() {
+        try {
+            return Files.readString(LOCAL_PORT_RANGE).trim().replaceAll("\\s+", "..");
+        } catch (IOException ioEx) {
+            return "n/a";
+        }
+    }
+
+    void start() {
+        if (!enabled || !socketTablesAvailable || sampler != null) {
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "churn-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void reset() {
+        maxClientTimeWait.reset();
+        maxServerTimeWait.reset();
+        maxEphemeralPortsInUse.reset();
+        connectStats.ifPresent(ConnectStats::reset);
+    }
+
+    void printStats(String httpMethod, Duration duration) {
+        if (!enabled) {
+            return;
+        }
+        System.out.println(httpMethod + " churn connect stats: " +
+                               connectStats.map(stats -> stats.stats(duration))
+                                           .orElse("not supported by the client"));
+        if (socketTablesAvailable) {
+            System.out.println(httpMethod + " churn socket stats: maxClientTimeWait=" + maxClientTimeWait.get() +
+                                   " maxServerTimeWait=" + maxServerTimeWait.get() +
+                                   " maxEphemeralPortsInUse=" + maxEphemeralPortsInUse.get() +
+                                   " ephemeralPortRange=" + localPortRange());
+        }
+    }
+
+    private void sample() {
+        long clientTimeWait = 0;
+        long serverTimeWait = 0;
+        long ephemeralPortsInUse = 0;
+        try {
+            for (Path tcpTable : TCP_TABLES) {
+                if (!Files.isReadable(tcpTable)) {
+                    continue;
+                }
+                var lines = Files.readAllLines(tcpTable);
+                // header: sl local_address rem_address st ...
+                for (String line : lines.subList(1, lines.size())) {
+                    var columns = line.trim().split("\\s+");
+                    var localPort = port(columns[1]);
+                    var remotePort = port(columns[2]);
+                    var timeWait = TCP_STATE_TIME_WAIT.equals(columns[3]);
+                    if (isServerPort(remotePort)) {
+                        ephemeralPortsInUse++;
+                        if (timeWait) {
+                            clientTimeWait++;
+                        }
+                    } else if (isServerPort(localPort) && timeWait) {
+                        serverTimeWait++;
+                    }
+                }
+            }
+        } catch (IOException ioEx) {
+            // a failed sample must not cancel the next ones
+            return;
+        }
+        maxClientTimeWait.accumulate(clientTimeWait);
+        maxServerTimeWait.accumulate(serverTimeWait);
+        maxEphemeralPortsInUse.accumulate(ephemeralPortsInUse);
+    }
+
+    private boolean isServerPort(int port) {
+        return port >= firstServerPort && port <= lastServerPort;
+    }
+
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.FIXED_RESOURCE;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start benchmark of a client in a fresh JVM, without any warmup: the time from the JVM start to the client
+ * construction, to the first successful request and to the first {@code benchmark.cold.start.requests} requests, sent
+ * one after another, along with the classes loaded at every milestone.
+ * <p>
+ * The class data sharing mode is taken from the JVM arguments, see the {@code coldStart} Gradle task.
+ * <pre>
+ * ColdStartBenchmark clientSimpleClassName
+ * </pre>
+ */
+public final class ColdStartBenchmark {
+
+    private ColdStartBenchmark() {
+        throw new AssertionError("No instance");
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expected arguments: client");
+        }
+        var runtime = ManagementFactory.getRuntimeMXBean();
+        var classLoading = ManagementFactory.getClassLoadingMXBean();
+        long mainMillis = runtime.getUptime();
+        long mainClasses = classLoading.getLoadedClassCount();
+        long mainNanos = System.nanoTime();
+
+        var benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        var httpAgentClient = BenchmarkUtils.newHttpAgentClient(args[0], benchmarkConfig);
+        long constructedNanos = System.nanoTime();
+        long constructedClasses = classLoading.getLoadedClassCount();
+
+        var target = BenchmarkRunner.target(benchmarkConfig, benchmarkConfig.getPort(), FIXED_RESOURCE);
+        var httpClientContext = BenchmarkRunner.toHttpClientContext(benchmarkConfig);
+        var firstResponse = httpAgentClient.get(target, httpClientContext);
+        if (!firstResponse.isSuccess()) {
+            throw new IllegalStateException("Cold start first request failed with status " +
+                                                firstResponse.getStatusCode());
+        }
+        long firstRequestNanos = System.nanoTime();
+        long firstRequestClasses = classLoading.getLoadedClassCount();
+
+        var requests = benchmarkConfig.getColdStartRequests();
+        int failedRequests = 0;
+        for (int i = 1; i < requests; i++) {
+            if (!httpAgentClient.get(target, httpClientContext).isSuccess()) {
+                failedRequests++;
+            }
+        }
+        long requestsNanos = System.nanoTime();
+        if (failedRequests > 0) {
+            throw new IllegalStateException("Cold start " + failedRequests + " of the first " + requests +
+                                                " requests failed");
+        }
+        long requestsClasses = classLoading.getLoadedClassCount();
+
+        System.out.println("Cold start " + args[0] + " cds=" + classDataSharing(runtime.getInputArguments().toString()) +
+                               " javaVersion=" + System.getProperty("java.version"));
+        System.out.printf("Cold start millis: jvmStartToMain=%d construct=%.1f firstRequest=%.1f first%dRequests=%.1f " +
+                              "jvmStartToFirstRequest=%.1f%n",
+                          mainMillis,
+                          nanosToMillis(constructedNanos - mainNanos),
+                          nanosToMillis(firstRequestNanos - constructedNanos),
+                          requests,
+                          nanosToMillis(requestsNanos - constructedNanos),
+                          mainMillis + nanosToMillis(firstRequestNanos - mainNanos));
+        System.out.println("Cold start loaded classes: main=" + mainClasses +
+                               " construct=+" + (constructedClasses - mainClasses) +
+                               " firstRequest=+" + (firstRequestClasses - constructedClasses) +
+                               " first" + requests + "Requests=+" + (requestsClasses - firstRequestClasses) +
+                               " total=" + requestsClasses);
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String classDataSharing(String jvmArguments) {
+        if (jvmArguments.contains("-XX:ArchiveClassesAtExit")) {
+            return "app-dump";
+        }
+        if (jvmArguments.contains("-XX:SharedArchiveFile")) {
+            return "app";
+        }
+        if (jvmArguments.contains("-Xshare:off")) {
+            return "off";
+        }
+        return "default";
+    }
+}
@@ -0,0 +1,34 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client side connection establishment stats, recorded by the adapters from the library connect hooks.
+ */
+final class ConnectStats {
+
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LongAdder failedConnects = new LongAdder();
+
+    void connected(long connectStartNanos) {
+        connectLatency.recordSince(connectStartNanos);
+    }
+
+    void connectFailed() {
+        failedConnects.increment();
+    }
+
+    void reset() {
+        connectLatency.reset();
+        failedConnects.reset();
+    }
+
+    String stats(Duration duration) {
+        var connects = connectLatency.count();
+        return "connects=" + connects +
+            " failed=" + failedConnects.sum() +
+            " connectsPerSecond=" + String.format("%.1f", connects * 1000.0 / Math.max(duration.toMillis(), 1)) +
+            " connect latency: " + connectLatency.toMillisSummary();
+    }
+}
@@ -7,6 +7,14 @@ final class Constants {
 
     static final String HTTP_CONTENT_TYPE_HEADER = "Content-Type";
     static final String HTTP_CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
+    static final String HTTP_CONTENT_TYPE_EVENT_STREAM = "text/event-stream";
+    static final String HTTP_ACCEPT_HEADER = "Accept";
+
+    static final String HTTP_ETAG_HEADER = "ETag";
+    static final String HTTP_LAST_MODIFIED_HEADER = "Last-Modified";
+    static final String HTTP_CACHE_CONTROL_HEADER = "Cache-Control";
+    static final String HTTP_IF_NONE_MATCH_HEADER = "If-None-Match";
+    static final String HTTP_IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
 
     private Constants() {
         throw new AssertionError("No instance");
@@ -0,0 +1,106 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * CPU partitioning of the benchmark JVMs on Linux: pins all the threads of the running JVM to a CPU list by
+ * {@code taskset}, the threads started afterwards inherit it. The JVM sized its GC, JIT and common pool threads at
+ * start, so the Gradle tasks pass the matching {@code -XX:ActiveProcessorCount}, which the Netty event loops and the
+ * Jetty selectors follow too.
+ */
+final class CpuAffinity {
+
+    private static final Path PROC_SELF_STATUS = Path.of("/proc/self/status");
+    private static final Path ONLINE_CPUS = Path.of("/sys/devices/system/cpu/online");
+    private static final Path CGROUP_V2_CPU_MAX = Path.of("/sys/fs/cgroup/cpu.max");
+    private static final Path CGROUP_V1_CPU_QUOTA = Path.of("/sys/fs/cgroup/cpu/cpu.cfs_quota_us");
+    private static final Path CGROUP_V1_CPU_PERIOD = Path.of("/sys/fs/cgroup/cpu/cpu.cfs_period_us");
+    private static final String CPUS_ALLOWED_LIST = "Cpus_allowed_list:";
+
+    private CpuAffinity() {
+        throw new AssertionError("No instance");
+    }
+
+    /**
+     * Pins the JVM threads to the CPU list, e.g. {@code 0-1,4}, nothing when empty.
+     */
+    static void pin(String cpus) {
+        if (cpus.isEmpty()) {
+            return;
+        }
+        if (!Files.isReadable(PROC_SELF_STATUS)) {
+            throw new IllegalStateException("CPU pinning to '" + cpus + "' is supported on Linux only");
+        }
+        var pid = String.valueOf(ProcessHandle.current().pid());
+        try {
+            var taskset = new ProcessBuilder(List.of("taskset", "--all-tasks", "--cpu-list", "--pid", cpus, pid))
+                .redirectErrorStream(true)
+                .start();
+            var output = new String(taskset.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (taskset.waitFor() != 0) {
+                throw new IllegalStateException("CPU pinning to '" + cpus + "' failed: " + output);
+            }
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException("CPU pinning to '" + cpus + "' needs taskset", ioEx);
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(interruptedEx);
+        }
+    }
+
+    /**
+     * The online CPUs, the JVM allowed ones, the available processors and the cgroup CPU quota.
+     */
+    static String topology() {
+        return "onlineCpus=" + read(ONLINE_CPUS) +
+            " allowedCpus=" + allowedCpus() +
+            " availableProcessors=" + Runtime.getRuntime().availableProcessors() +
+            " cpuQuota=" + cpuQuota();
+    }
+
+    private static String allowedCpus() {
+        try {
+            return Files.readAllLines(PROC_SELF_STATUS)
+                        .stream()
+                        .filter(line -> line.startsWith(CPUS_ALLOWED_LIST))
+                        .map(line -> line.substring(CPUS_ALLOWED_LIST.length()).trim())
+                        .findFirst()
+                        .orElse("n/a");
+        } catch (IOException ioEx) {
+            return "n/a";
+        }
+    }
+
+    /**
+     * The cgroup CPU quota as CPUs, v2 first then v1.
+     */
+    private static String cpuQuota() {
+        var cpuMax = read(CGROUP_V2_CPU_MAX).split("\\s+");
+        if (cpuMax.length == 2) {
+            return cpus(cpuMax[0], cpuMax[1]);
+        }
+        return cpus(read(CGROUP_V1_CPU_QUOTA), read(CGROUP_V1_CPU_PERIOD));
+    }
+
+    private static String cpus(String quota, String period) {
+        try {
+            var quotaMicros = Long.parseLong(quota);
+            return quotaMicros < 0 ? "unlimited" : String.format("%.2f", quotaMicros / (double) Long.parseLong(period));
+        } catch (NumberFormatException numberFormatEx) {
+            return quota.equals("max") ? "unlimited" : "n/a";
+        }
+    }
+
+    private static String read(Path path) {
+        try {
+            return Files.readString(path).trim();
+        } catch (IOException ioEx) {
+            return "n/a";
+        }
+    }
+}
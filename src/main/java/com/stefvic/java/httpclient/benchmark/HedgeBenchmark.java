@@ -0,0 +1,71 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hedged requests benchmark: the same GET phase unhedged then hedged by {@link HedgingHttpAgentClient}, reporting the
+ * p99 and p99.9 latency reduction against the extra requests sent. The tail is meant to come from the server injected
+ * latency, see {@code benchmark.server.injected.latency.ratio}.
+ */
+final class HedgeBenchmark {
+
+    private HedgeBenchmark() {
+        throw new AssertionError("No instance");
+    }
+
+    static void run(ExecutorService executor,
+                    HttpAgentClient httpAgentClient,
+                    BenchmarkConfig benchmarkConfig,
+                    BenchmarkRoutes routes) {
+        var requests = benchmarkConfig.getRequests();
+        System.out.println("\nStart hedging benchmark: GET requests " + requests + ", hedge percentile " +
+                               benchmarkConfig.getHedgePercentile() + ", budget ratio " +
+                               benchmarkConfig.getHedgeBudgetRatio());
+
+        var unhedged = BenchmarkRunner.measurePhase("GET unhedged", executor, requests,
+                                                    BenchmarkRunner.benchmarkGet(httpAgentClient, benchmarkConfig,
+                                                                                 routes),
+                                                    routes);
+        System.out.println(unhedged);
+        BenchmarkRunner.printServerMetricsAndReset(unhedged.getName(), httpAgentClient, benchmarkConfig,
+                                                   unhedged.getLatency());
+
+        try (var hedgingClient = new HedgingHttpAgentClient(httpAgentClient, benchmarkConfig)) {
+            var hedgedGet = BenchmarkRunner.benchmarkGet(hedgingClient, benchmarkConfig, routes);
+            // fills the first latency estimator windows
+            BenchmarkRunner.measurePhase("GET hedged warmup", executor,
+                                         Math.max(requests / 10, benchmarkConfig.getHedgeEstimatorWindow() * 2),
+                                         hedgedGet, routes);
+            hedgingClient.reset();
+            BenchmarkRunner.resetServerMetrics(httpAgentClient, benchmarkConfig);
+
+            var hedged = BenchmarkRunner.measurePhase("GET hedged", executor, requests, hedgedGet, routes);
+            System.out.println(hedged);
+            System.out.println("GET hedged stats: " + hedgingClient.stats());
+            BenchmarkRunner.printServerMetricsAndReset(hedged.getName(), httpAgentClient, benchmarkConfig,
+                                                       hedged.getLatency());
+
+            System.out.printf("Hedging p99 %.3f -> %.3f millis (%+.1f%%), p99.9 %.3f -> %.3f millis (%+.1f%%), " +
+                                  "errors %d -> %d%n",
+                              millis(unhedged.getLatency().valueAtPercentile(99)),
+                              millis(hedged.getLatency().valueAtPercentile(99)),
+                              change(unhedged.getLatency().valueAtPercentile(99),
+                                     hedged.getLatency().valueAtPercentile(99)),
+                              millis(unhedged.getLatency().valueAtPercentile(99.9)),
+                              millis(hedged.getLatency().valueAtPercentile(99.9)),
+                              change(unhedged.getLatency().valueAtPercentile(99.9),
+                                     hedged.getLatency().valueAtPercentile(99.9)),
+                              unhedged.getErrors(),
+                              hedged.getErrors());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static double change(long before, long after) {
+        return before == 0 ? 0 : (after - before) * 100.0 / before;
+    }
+}
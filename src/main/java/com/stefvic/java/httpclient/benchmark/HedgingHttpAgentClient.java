@@ -0,0 +1,202 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedged GET decorator: sends a backup request once the primary one is slower than the estimated latency percentile,
+ * returns the first successful response and cancels the other request. The backups are capped by a token budget, a
+ * ratio of the requests. The POSTs are not hedged, they are not idempotent.
+ * <p>
+ * The cancellation cost depends on the client {@link HttpAgentClient#getAsync}: Reactor Netty closes the loser
+ * connection, the JDK async client aborts the exchange from Java 16 on, and the blocking clients run the loser to its
+ * end on a hedging thread while holding its connection.
+ */
+final class HedgingHttpAgentClient implements HttpAgentClient, AutoCloseable {
+
+    /**
+     * Hedges available at once after a quiet period.
+     */
+    private static final int BUDGET_BURST = 10;
+
+    private final HttpAgentClient delegate;
+    private final LatencyEstimator latencyEstimator;
+    private final HedgeBudget hedgeBudget;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        var thread = new Thread(r, "hedging");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetDenied = new LongAdder();
+
+    HedgingHttpAgentClient(HttpAgentClient delegate, BenchmarkConfig benchmarkConfig) {
+        this.delegate = delegate;
+        // no hedge until the first estimator window is full
+        this.latencyEstimator = new LatencyEstimator(benchmarkConfig.getHedgePercentile(),
+                                                     benchmarkConfig.getHedgeEstimatorWindow(),
+                                                     Long.MAX_VALUE);
+        this.hedgeBudget = new HedgeBudget(benchmarkConfig.getHedgeBudgetRatio(), BUDGET_BURST);
+    }
+
+    private static HttpClientResponse join(CompletableFuture<HttpClientResponse> response) {
+        try {
+            return response.join();
+        } catch (CompletionException completionEx) {
+            throw unwrap(completionEx.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        return failure instanceof RuntimeException ? (RuntimeException) failure : new CompletionException(failure);
+    }
+
+    /**
+     * Completes by the first successful response, or by the last failure.
+     */
+    private static boolean completeFirst(CompletableFuture<HttpClientResponse> first,
+                                         HttpClientResponse response,
+                                         Throwable failure,
+                                         CompletableFuture<HttpClientResponse> other) {
+        if (failure == null) {
+            return first.complete(response);
+        }
+        if (other.isCompletedExceptionally()) {
+            first.completeExceptionally(failure);
+        }
+        return false;
+    }
+
+    @Override
+    public HttpClientResponse get(URI target, HttpClientContext httpClientContext) {
+        requests.increment();
+        hedgeBudget.deposit();
+        long start = System.nanoTime();
+        var primary = delegate.getAsync(target, httpClientContext, executor);
+        // a cancelled primary records its time to the cancellation, a lower bound of its latency
+        primary.whenComplete((response, failure) -> latencyEstimator.record(System.nanoTime() - start));
+        try {
+            return primary.get(latencyEstimator.estimateNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException timeoutEx) {
+            // slower than the percentile, hedged below
+        } catch (ExecutionException executionEx) {
+            throw unwrap(executionEx.getCause());
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+            primary.cancel(true);
+            throw new RuntimeException(interruptedEx);
+        }
+
+        if (!hedgeBudget.tryWithdraw()) {
+            budgetDenied.increment();
+            return join(primary);
+        }
+        hedges.increment();
+        var backup = delegate.getAsync(target, httpClientContext, executor);
+        var first = new CompletableFuture<HttpClientResponse>();
+        primary.whenComplete((response, failure) -> completeFirst(first, response, failure, backup));
+        backup.whenComplete((response, failure) -> {
+            if (completeFirst(first, response, failure, primary)) {
+                hedgeWins.increment();
+            }
+        });
+        try {
+            return join(first);
+        } finally {
+            primary.cancel(true);
+            backup.cancel(true);
+        }
+    }
+
+    @Override
+    public HttpClientResponse post(URI target, HttpClientContext httpClientContext) {
+        return delegate.post(target, httpClientContext);
+    }
+
+    @Override
+    public void prewarm(URI target, int connections) {
+        delegate.prewarm(target, connections);
+    }
+
+    @Override
+    public Optional<ConnectStats> connectStats() {
+        return delegate.connectStats();
+    }
+
+    @Override
+    public Optional<CacheStats> cacheStats() {
+        return delegate.cacheStats();
+    }
+
+    String stats() {
+        long requestCount = requests.sum();
+        long hedgeCount = hedges.sum();
+        return String.format("requests=%d hedges=%d extraRequests=%.2f%% hedgeWins=%d budgetDenied=%d " +
+                                 "thresholdMillis=%.3f",
+                             requestCount,
+                             hedgeCount,
+                             hedgeCount * 100.0 / Math.max(requestCount, 1),
+                             hedgeWins.sum(),
+                             budgetDenied.sum(),
+                             latencyEstimator.estimateNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Resets the counters, the latency estimate and the budget are kept.
+     */
+    void reset() {
+        requests.reset();
+        hedges.reset();
+        hedgeWins.reset();
+        budgetDenied.reset();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Lock free token budget: every request deposits the budget ratio of a token, up to the burst, and every hedge
+     * withdraws a whole token, so the hedges stay below the ratio of the requests.
+     */
+    private static final class HedgeBudget {
+
+        private static final long TOKEN = 1000;
+
+        private final long deposit;
+        private final long maxTokens;
+        private final AtomicLong tokens = new AtomicLong();
+
+        private HedgeBudget(double ratio, int burst) {
+            this.deposit = Math.round(ratio * TOKEN);
+            this.maxTokens = burst * TOKEN;
+        }
+
+        private void deposit() {
+            tokens.accumulateAndGet(deposit, (current, added) -> Math.min(current + added, maxTokens));
+        }
+
+        private boolean tryWithdraw() {
+            long current;
+            do {
+                current = tokens.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+    }
+}
@@ -1,10 +1,75 @@
 package com.stefvic.java.httpclient.benchmark;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public interface HttpAgentClient {
 
+    long PREWARM_TIMEOUT_MILLIS = 10_000;
+
     HttpClientResponse get(URI target, HttpClientContext httpClientContext);
 
     HttpClientResponse post(URI target, HttpClientContext httpClientContext);
+
+    /**
+     * Sends the GET without blocking the caller, cancelling the result cancels the exchange when the client supports
+     * it. By default the blocking get runs on the executor, a cancelled get still runs to its end.
+     */
+    default CompletableFuture<HttpClientResponse> getAsync(URI target,
+                                                           HttpClientContext httpClientContext,
+                                                           Executor executor) {
+        return CompletableFuture.supplyAsync(() -> get(target, httpClientContext), executor);
+    }
+
+    /**
+     * Opens and parks the connections in the client pool before the traffic. The clients with a pool API open them
+     * directly. By default, for the clients without one, by as many concurrent GETs of the target, so this fallback
+     * needs a server holding every request long enough for none of them to reuse the connection of another, as the
+     * {@link BenchmarkJettyHttpServer#PREWARM_RESOURCE} does. Returns once all of them completed, their connections kept
+     * alive in the pool, throws when any of them did not succeed.
+     */
+    default void prewarm(URI target, int connections) {
+        var httpClientContext = HttpClientContext.builder()
+                                                 .connectTimeoutMillis(PREWARM_TIMEOUT_MILLIS)
+                                                 .socketTimeoutMillis(PREWARM_TIMEOUT_MILLIS)
+                                                 .build();
+        var executor = Executors.newFixedThreadPool(connections);
+        try {
+            // all sent before any join, to be held by the server at once
+            List<CompletableFuture<HttpClientResponse>> responses =
+                IntStream.range(0, connections)
+                         .mapToObj(i -> getAsync(target, httpClientContext, executor))
+                         .collect(Collectors.toList());
+            var failed = responses.stream()
+                                  .map(CompletableFuture::join)
+                                  .filter(response -> !response.isSuccess())
+                                  .count();
+            if (failed > 0) {
+                throw new IllegalStateException("Prewarm " + target + " failed " + failed + " of " + connections +
+                                                    " requests");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Connection establishment stats, empty when the client library has no connect hooks.
+     */
+    default Optional<ConnectStats> connectStats() {
+        return Optional.empty();
+    }
+
+    /**
+     * HTTP cache stats, empty when the client has no cache layer.
+     */
+    default Optional<CacheStats> cacheStats() {
+        return Optional.empty();
+    }
 }
@@ -1,6 +1,10 @@
 package com.stefvic.java.httpclient.benchmark;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import lombok.Builder;
+import lombok.Builder.Default;
 import lombok.Getter;
 
 @Builder
@@ -10,11 +14,24 @@ public class HttpClientResponse {
 
     private final int statusCode;
     private final byte[] responseBody;
+    /**
+     * Response headers, filled by the adapters which are decorated by the {@link CachingHttpAgentClient} only.
+     */
+    @Default
+    private final Map<String, List<String>> headers = Map.of();
 
     public int responseBodyLength() {
         return responseBody == null ? 0 : responseBody.length;
     }
 
+    public Optional<String> header(String name) {
+        return headers.entrySet()
+                      .stream()
+                      .filter(header -> header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty())
+                      .map(header -> header.getValue().get(0))
+                      .findFirst();
+    }
+
     public boolean isSuccess() {
         return statusCode >= 200 && statusCode < 300;
     }
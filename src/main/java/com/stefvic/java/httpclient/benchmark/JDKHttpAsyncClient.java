@@ -6,6 +6,8 @@ import java.net.http.HttpClient.Redirect;
 import java.net.http.HttpClient.Version;
 import java.net.http.HttpRequest;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class JDKHttpAsyncClient implements HttpAgentClient {
 
@@ -15,7 +17,8 @@ public class JDKHttpAsyncClient implements HttpAgentClient {
         this(HttpClient.newBuilder()
                        .followRedirects(Redirect.NEVER)
                        .version(Version.HTTP_1_1)
-                       .connectTimeout(Duration.ofMillis(benchmarkConfig.getClientConnectTimeoutMillis())));
+                       .connectTimeout(Duration.ofMillis(benchmarkConfig.getClientConnectTimeoutMillis()))
+                       .sslContext(JDKHttpClientSupport.sslContext(benchmarkConfig)));
     }
 
     public JDKHttpAsyncClient(HttpClient.Builder builder) {
@@ -38,6 +41,16 @@ public class JDKHttpAsyncClient implements HttpAgentClient {
         return JDKHttpClientSupport.toResponse(response);
     }
 
+    @Override
+    public CompletableFuture<HttpClientResponse> getAsync(URI target,
+                                                          HttpClientContext httpClientContext,
+                                                          Executor executor) {
+        HttpRequest.Builder httpRequestBld =
+            JDKHttpClientSupport.commonBuilder(target, httpClientContext)
+                                .GET();
+        return JDKHttpClientSupport.sendAsync(httpClient, httpRequestBld.build());
+    }
+
     @Override
     public HttpClientResponse post(URI target, HttpClientContext httpClientContext) {
         HttpRequest.Builder httpRequestBld =
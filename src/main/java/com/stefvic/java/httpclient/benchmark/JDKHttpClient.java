@@ -7,21 +7,21 @@ import java.net.http.HttpClient.Version;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
-public class JDKHttpClient implements HttpAgentClient {
+public class JDKHttpClient implements HttpAgentClient, StreamingAgentClient {
 
     private final HttpClient httpClient;
 
     public JDKHttpClient(BenchmarkConfig benchmarkConfig) {
-        // The default JDK pool looks  good enough
-//        static final long KEEP_ALIVE = Utils.getIntegerNetProperty(
-//            "jdk.httpclient.keepalive.timeout", 1200); // seconds
-//        static final long MAX_POOL_SIZE = Utils.getIntegerNetProperty(
-//            "jdk.httpclient.connectionPoolSize", 0); //unbounded
+        // The default JDK pool looks good enough, the jdk.httpclient.connectionPoolSize (unbounded)
+        // and jdk.httpclient.keepalive.timeout (1200 seconds) properties are passed by Gradle
         this.httpClient = HttpClient.newBuilder()
                                     .followRedirects(Redirect.NEVER)
                                     .version(Version.HTTP_1_1)
                                     .connectTimeout(Duration.ofMillis(benchmarkConfig.getClientConnectTimeoutMillis()))
+                                    .sslContext(JDKHttpClientSupport.sslContext(benchmarkConfig))
                                     .build();
 
     }
@@ -53,4 +53,14 @@ public class JDKHttpClient implements HttpAgentClient {
                                                                          httpRequestBld.build());
         return JDKHttpClientSupport.toResponse(response);
     }
+
+    @Override
+    public WebSocketSession webSocket(URI target, Consumer<String> onMessage) {
+        return JDKHttpClientSupport.webSocket(httpClient, target, onMessage);
+    }
+
+    @Override
+    public CompletableFuture<Void> serverSentEvents(URI target, Consumer<String> onEvent) {
+        return JDKHttpClientSupport.serverSentEvents(httpClient, target, onEvent);
+    }
 }
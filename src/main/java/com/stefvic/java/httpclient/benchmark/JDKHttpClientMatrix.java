@@ -0,0 +1,92 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One cell of the JDK http client strategy matrix, see {@link JDKHttpConfigurableClient}: warms up, measures the GET
+ * and POST phases and appends a row to the {@code benchmark.jdk.matrix.report} table, see the {@code jdkMatrix} Gradle
+ * task running a JVM per cell.
+ */
+public final class JDKHttpClientMatrix {
+
+    private static final String ROW_FORMAT = "%-9s %7s %7s %9s %9s %12s %10s %10s %10s %7s %12s %10s %10s %10s %7s%n";
+
+    private JDKHttpClientMatrix() {
+        throw new AssertionError("No instance");
+    }
+
+    public static void main(String[] args) {
+        var benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        CpuAffinity.pin(benchmarkConfig.getClientCpus());
+        BenchmarkUtils.printJavaOsInfo();
+        System.out.println(benchmarkConfig);
+        System.out.println(JDKHttpConfigurableClient.connectionPoolProperties());
+        var routes = BenchmarkRoutes.of(benchmarkConfig);
+        ExecutorService executor = Executors.newFixedThreadPool(benchmarkConfig.getConcurrency());
+        try (var httpAgentClient = new JDKHttpConfigurableClient(benchmarkConfig);
+             var churnMonitor = new ChurnMonitor(benchmarkConfig, httpAgentClient.connectStats())) {
+            BenchmarkRunner.warmup(executor, httpAgentClient, benchmarkConfig, routes, churnMonitor);
+
+            var requests = benchmarkConfig.getRequests();
+            var postBody = BenchmarkUtils.randomContent(benchmarkConfig.getContentBytesSize());
+            var get = BenchmarkRunner.measurePhase("GET", executor, requests,
+                                                   BenchmarkRunner.benchmarkGet(httpAgentClient, benchmarkConfig,
+                                                                                routes),
+                                                   routes);
+            System.out.println(get);
+            var post = BenchmarkRunner.measurePhase("POST", executor, requests,
+                                                    BenchmarkRunner.benchmarkPost(httpAgentClient, benchmarkConfig,
+                                                                                  routes, postBody),
+                                                    routes);
+            System.out.println(post);
+            if (!benchmarkConfig.getJdkMatrixReport().isEmpty()) {
+                appendRow(Path.of(benchmarkConfig.getJdkMatrixReport()), benchmarkConfig, get, post);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void appendRow(Path report, BenchmarkConfig benchmarkConfig, PhaseResult get, PhaseResult post) {
+        var row = new StringBuilder();
+        try {
+            if (!Files.exists(report) || Files.size(report) == 0) {
+                row.append(String.format(ROW_FORMAT, "executor", "threads", "clients", "poolSize", "keepAlive",
+                                         "getReqPerSec", "getP50", "getP99", "getP99.9", "getErr",
+                                         "postReqPerSec", "postP50", "postP99", "postP99.9", "postErr"));
+            }
+            row.append(String.format(ROW_FORMAT,
+                                     benchmarkConfig.getJdkExecutor(),
+                                     benchmarkConfig.getJdkExecutorThreads(),
+                                     benchmarkConfig.getJdkClients(),
+                                     System.getProperty(JDKHttpConfigurableClient.CONNECTION_POOL_SIZE_PROPERTY, "0"),
+                                     System.getProperty(JDKHttpConfigurableClient.KEEP_ALIVE_TIMEOUT_PROPERTY, "1200"),
+                                     String.format("%.0f", get.requestsPerSecond()),
+                                     millis(get.getLatency().valueAtPercentile(50)),
+                                     millis(get.getLatency().valueAtPercentile(99)),
+                                     millis(get.getLatency().valueAtPercentile(99.9)),
+                                     get.getErrors(),
+                                     String.format("%.0f", post.requestsPerSecond()),
+                                     millis(post.getLatency().valueAtPercentile(50)),
+                                     millis(post.getLatency().valueAtPercentile(99)),
+                                     millis(post.getLatency().valueAtPercentile(99.9)),
+                                     post.getErrors()));
+            Files.writeString(report, row, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                              StandardOpenOption.APPEND);
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException(ioEx);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -1,5 +1,8 @@
 package com.stefvic.java.httpclient.benchmark;
 
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_ACCEPT_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_EVENT_STREAM;
+
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URI;
@@ -7,12 +10,20 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.WebSocket;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.net.ssl.SSLContext;
 
 final class JDKHttpClientSupport {
 
@@ -20,6 +31,20 @@ final class JDKHttpClientSupport {
         throw new AssertionError("No instance");
     }
 
+    /**
+     * The JDK {@link HttpClient} accepts only a non-null ssl context, the default one is used for plain http.
+     */
+    static SSLContext sslContext(BenchmarkConfig benchmarkConfig) {
+        if (benchmarkConfig.isHttpsScenario()) {
+            return BenchmarkTls.trustAllSslContext();
+        }
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException noSuchAlgorithmEx) {
+            throw new IllegalStateException(noSuchAlgorithmEx);
+        }
+    }
+
     static void addHeaders(HttpRequest.Builder httpRequestBld, Map<String, List<String>> headers) {
         headers.forEach((name, values) -> values.forEach(value -> httpRequestBld.header(name, value)));
     }
@@ -36,6 +61,7 @@ final class JDKHttpClientSupport {
         return HttpClientResponse.builder()
                                  .statusCode(response.statusCode())
                                  .responseBody(response.body())
+                                 .headers(response.headers().map())
                                  .build();
     }
 
@@ -68,10 +94,132 @@ final class JDKHttpClientSupport {
         }
     }
 
+    /**
+     * Sends the request asynchronously, cancelling the response cancels the exchange, which aborts it from Java 16 on.
+     */
+    static CompletableFuture<HttpClientResponse> sendAsync(HttpClient client, HttpRequest httpRequest) {
+        var exchange = client.sendAsync(httpRequest, BodyHandlers.ofByteArray());
+        var response = exchange.thenApply(JDKHttpClientSupport::toResponse);
+        response.whenComplete((httpClientResponse, failure) -> {
+            if (failure instanceof CancellationException) {
+                exchange.cancel(true);
+            }
+        });
+        return response;
+    }
+
     private static long waitAsyncResponseTime(HttpClientContext httpClientContext) {
         return httpClientContext.getSocketTimeoutMillis() +
             httpClientContext.getConnectTimeoutMillis() +
             10000; //buffer
     }
 
+    static StreamingAgentClient.WebSocketSession webSocket(HttpClient client,
+                                                           URI target,
+                                                           Consumer<String> onMessage) {
+        var listener = new TextListener(onMessage);
+        var webSocket = client.newWebSocketBuilder()
+                              .buildAsync(target, listener)
+                              .join();
+        return new StreamingAgentClient.WebSocketSession() {
+            @Override
+            public void send(String message) {
+                // a send must complete before the next one starts
+                webSocket.sendText(message, true).join();
+            }
+
+            @Override
+            public void close() {
+                webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+            }
+
+            @Override
+            public CompletableFuture<Void> closed() {
+                return listener.closed;
+            }
+        };
+    }
+
+    static CompletableFuture<Void> serverSentEvents(HttpClient client, URI target, Consumer<String> onEvent) {
+        var httpRequest = HttpRequest.newBuilder(target)
+                                     .header(HTTP_ACCEPT_HEADER, HTTP_CONTENT_TYPE_EVENT_STREAM)
+                                     .GET()
+                                     .build();
+        return client.sendAsync(httpRequest, BodyHandlers.fromLineSubscriber(new LineSubscriber(onEvent)))
+                     .thenAccept(response -> {
+                         if (response.statusCode() != 200) {
+                             throw new IllegalStateException("Server-Sent Events stream failed with status " +
+                                                                 response.statusCode());
+                         }
+                     });
+    }
+
+    /**
+     * Joins the partial text frames into whole messages.
+     */
+    private static final class TextListener implements WebSocket.Listener {
+
+        private final Consumer<String> onMessage;
+        private final StringBuilder partial = new StringBuilder();
+        private final CompletableFuture<Void> closed = new CompletableFuture<>();
+
+        private TextListener(Consumer<String> onMessage) {
+            this.onMessage = onMessage;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            if (last && partial.length() == 0) {
+                onMessage.accept(data.toString());
+            } else {
+                partial.append(data);
+                if (last) {
+                    onMessage.accept(partial.toString());
+                    partial.setLength(0);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed.complete(null);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            closed.completeExceptionally(error);
+        }
+    }
+
+    private static final class LineSubscriber implements Flow.Subscriber<String> {
+
+        private final Consumer<String> onEvent;
+
+        private LineSubscriber(Consumer<String> onEvent) {
+            this.onEvent = onEvent;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            StreamingAgentClient.onServerSentEventLine(line, onEvent);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // completes the response exceptionally
+        }
+
+        @Override
+        public void onComplete() {
+            // completes the response
+        }
+    }
 }
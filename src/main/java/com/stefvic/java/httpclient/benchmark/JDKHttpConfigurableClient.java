@@ -0,0 +1,158 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JDK async http client by strategy:
+ * <ul>
+ * <li>{@code benchmark.jdk.executor}: the client executor, {@code default} (the JDK cached one per client),
+ * {@code fixed}, {@code forkjoin}, {@code direct} (the selector thread completes the responses) or {@code virtual}
+ * (a virtual thread per task, from Java 21).</li>
+ * <li>{@code benchmark.jdk.executor.threads}: the fixed and fork join executors threads.</li>
+ * <li>{@code benchmark.jdk.clients}: the {@link HttpClient} instances, every caller thread sticks to one of them, each
+ * one has its own selector manager thread and connection pool.</li>
+ * </ul>
+ * The JDK connection pool reads the {@code jdk.httpclient.connectionPoolSize} and
+ * {@code jdk.httpclient.keepalive.timeout} system properties once per JVM, Gradle passes them through.
+ */
+public class JDKHttpConfigurableClient implements HttpAgentClient, AutoCloseable {
+
+    static final String CONNECTION_POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+    static final String KEEP_ALIVE_TIMEOUT_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    private final Executor executor;
+    private final HttpClient[] httpClients;
+    private final AtomicInteger nextHttpClient = new AtomicInteger();
+    private final ThreadLocal<HttpClient> callerHttpClient;
+
+    public JDKHttpConfigurableClient(BenchmarkConfig benchmarkConfig) {
+        this.executor = executor(benchmarkConfig);
+        this.httpClients = new HttpClient[Math.max(benchmarkConfig.getJdkClients(), 1)];
+        for (int i = 0; i < httpClients.length; i++) {
+            var builder = HttpClient.newBuilder()
+                                    .followRedirects(Redirect.NEVER)
+                                    .version(Version.HTTP_1_1)
+                                    .connectTimeout(Duration.ofMillis(benchmarkConfig.getClientConnectTimeoutMillis()))
+                                    .sslContext(JDKHttpClientSupport.sslContext(benchmarkConfig));
+            if (executor != null) {
+                builder.executor(executor);
+            }
+            httpClients[i] = builder.build();
+        }
+        this.callerHttpClient =
+            ThreadLocal.withInitial(() -> httpClients[nextHttpClient.getAndIncrement() % httpClients.length]);
+    }
+
+    /**
+     * The shared client executor, null for the JDK default one.
+     */
+    private static Executor executor(BenchmarkConfig benchmarkConfig) {
+        switch (benchmarkConfig.getJdkExecutor()) {
+            case "default":
+                return null;
+            case "fixed":
+                // daemon threads, for the mains not closing their client to exit
+                return Executors.newFixedThreadPool(executorThreads(benchmarkConfig), r -> {
+                    var thread = new Thread(r, "jdk-http-client-executor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            case "forkjoin":
+                return new ForkJoinPool(executorThreads(benchmarkConfig));
+            case "direct":
+                return Runnable::run;
+            case "virtual":
+                return virtualThreadPerTaskExecutor();
+            default:
+                throw new IllegalArgumentException("Unknown benchmark.jdk.executor '" + benchmarkConfig.getJdkExecutor() +
+                                                       "', expected: default, fixed, forkjoin, direct, virtual");
+        }
+    }
+
+    private static int executorThreads(BenchmarkConfig benchmarkConfig) {
+        var threads = benchmarkConfig.getJdkExecutorThreads();
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid benchmark.jdk.executor.threads '" + threads + "' of the '" +
+                                                   benchmarkConfig.getJdkExecutor() + "' executor, expected: 1 or more");
+        }
+        return threads;
+    }
+
+    /**
+     * Looked up by reflection, the benchmark is built for Java 15.
+     */
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException reflectiveEx) {
+            throw new IllegalStateException("Virtual threads need Java 21, or Java 19 with --enable-preview",
+                                            reflectiveEx);
+        }
+    }
+
+    /**
+     * The connection pool system properties, as read by the JDK.
+     */
+    static String connectionPoolProperties() {
+        return CONNECTION_POOL_SIZE_PROPERTY + "=" + System.getProperty(CONNECTION_POOL_SIZE_PROPERTY, "0") + " " +
+            KEEP_ALIVE_TIMEOUT_PROPERTY + "=" + System.getProperty(KEEP_ALIVE_TIMEOUT_PROPERTY, "1200");
+    }
+
+    public static void main(String[] args) {
+        BenchmarkConfig benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        System.out.println(connectionPoolProperties());
+        try (var client = new JDKHttpConfigurableClient(benchmarkConfig)) {
+            BenchmarkRunner.run(client, benchmarkConfig);
+        }
+    }
+
+    @Override
+    public HttpClientResponse get(URI target, HttpClientContext httpClientContext) {
+        HttpRequest.Builder httpRequestBld =
+            JDKHttpClientSupport.commonBuilder(target, httpClientContext)
+                                .GET();
+        var response = JDKHttpClientSupport.sendAsyncRequest(callerHttpClient.get(),
+                                                             httpClientContext,
+                                                             httpRequestBld.build());
+        return JDKHttpClientSupport.toResponse(response);
+    }
+
+    @Override
+    public CompletableFuture<HttpClientResponse> getAsync(URI target,
+                                                          HttpClientContext httpClientContext,
+                                                          Executor executor) {
+        HttpRequest.Builder httpRequestBld =
+            JDKHttpClientSupport.commonBuilder(target, httpClientContext)
+                                .GET();
+        return JDKHttpClientSupport.sendAsync(callerHttpClient.get(), httpRequestBld.build());
+    }
+
+    @Override
+    public HttpClientResponse post(URI target, HttpClientContext httpClientContext) {
+        HttpRequest.Builder httpRequestBld =
+            JDKHttpClientSupport.commonBuilder(target, httpClientContext)
+                                .POST(HttpRequest.BodyPublishers.ofByteArray(httpClientContext.getPostBody()));
+        var response = JDKHttpClientSupport.sendAsyncRequest(callerHttpClient.get(),
+                                                             httpClientContext,
+                                                             httpRequestBld.build());
+        return JDKHttpClientSupport.toResponse(response);
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+}
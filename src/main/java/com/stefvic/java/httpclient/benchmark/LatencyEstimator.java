@@ -0,0 +1,48 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock free, continuously updated latency percentile estimate over tumbling windows: the latencies are recorded into
+ * the current window histogram, and once it holds the window size the estimate is taken from it and a new window
+ * starts.
+ * <p>
+ * A record racing the window swap may land in the retired window, which only undercounts the next one slightly.
+ */
+final class LatencyEstimator {
+
+    private final double percentile;
+    private final long windowSize;
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window());
+    private volatile long estimateNanos;
+
+    /**
+     * @param initialEstimateNanos the estimate until the first window is full
+     */
+    LatencyEstimator(double percentile, long windowSize, long initialEstimateNanos) {
+        this.percentile = percentile;
+        this.windowSize = windowSize;
+        this.estimateNanos = initialEstimateNanos;
+    }
+
+    void record(long latencyNanos) {
+        var current = window.get();
+        current.histogram.record(latencyNanos);
+        // only the thread recording the last value of the window swaps it
+        if (current.recorded.incrementAndGet() == windowSize) {
+            window.set(new Window());
+            estimateNanos = current.histogram.valueAtPercentile(percentile);
+        }
+    }
+
+    long estimateNanos() {
+        return estimateNanos;
+    }
+
+    private static final class Window {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong recorded = new AtomicLong();
+    }
+}
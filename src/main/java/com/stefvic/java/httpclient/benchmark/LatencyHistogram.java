@@ -0,0 +1,183 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free log-linear latency histogram, values are recorded in nanoseconds.
+ * <p>
+ * Every power of two range is split into {@value #SUB_BUCKET_COUNT} linear buckets, which keeps
+ * the relative error below 1% while all instances share the same bucket layout and can be merged
+ * without loss.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalSum = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = ((long) (index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    void record(long valueNanos) {
+        long value = Math.max(valueNanos, 0);
+        counts.incrementAndGet(index(value));
+        totalSum.add(value);
+        maxValue.accumulate(value);
+    }
+
+    void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    long max() {
+        return maxValue.get();
+    }
+
+    long sum() {
+        return totalSum.sum();
+    }
+
+    double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum() / count;
+    }
+
+    long valueAtPercentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Count of the recorded values which are less or equal to the given value, on bucket precision.
+     */
+    long countAtOrBelow(long valueNanos) {
+        int upTo = index(Math.max(valueNanos, 0));
+        long count = 0;
+        for (int i = 0; i <= upTo; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalSum.add(other.sum());
+        maxValue.accumulate(other.max());
+    }
+
+    LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalSum.reset();
+        maxValue.reset();
+    }
+
+    /**
+     * Writes the non empty buckets, see {@link #readFrom(DataInput)}.
+     */
+    void writeTo(DataOutput output) throws IOException {
+        int nonEmptyBuckets = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            if (snapshot[i] != 0) {
+                nonEmptyBuckets++;
+            }
+        }
+        output.writeInt(nonEmptyBuckets);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (snapshot[i] != 0) {
+                output.writeInt(i);
+                output.writeLong(snapshot[i]);
+            }
+        }
+        output.writeLong(sum());
+        output.writeLong(max());
+    }
+
+    static LatencyHistogram readFrom(DataInput input) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int nonEmptyBuckets = input.readInt();
+        for (int i = 0; i < nonEmptyBuckets; i++) {
+            histogram.counts.set(input.readInt(), input.readLong());
+        }
+        histogram.totalSum.add(input.readLong());
+        histogram.maxValue.accumulate(input.readLong());
+        return histogram;
+    }
+
+    String toMillisSummary() {
+        return String.format("count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f (millis)",
+                             count(),
+                             mean() / TimeUnit.MILLISECONDS.toNanos(1),
+                             nanosToMillis(valueAtPercentile(50)),
+                             nanosToMillis(valueAtPercentile(90)),
+                             nanosToMillis(valueAtPercentile(99)),
+                             nanosToMillis(valueAtPercentile(99.9)),
+                             nanosToMillis(max()));
+    }
+
+    @Override
+    public String toString() {
+        return toMillisSummary();
+    }
+}
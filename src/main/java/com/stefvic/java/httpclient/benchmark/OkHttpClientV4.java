@@ -1,19 +1,51 @@
 package com.stefvic.java.httpclient.benchmark;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.SocketException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.net.SocketFactory;
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
 import okhttp3.Dispatcher;
+import okhttp3.EventListener;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
 
-public class OkHttpClientV4 implements HttpAgentClient {
+public class OkHttpClientV4 implements HttpAgentClient, StreamingAgentClient {
+
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int WEBSOCKET_NORMAL_CLOSURE = 1000;
 
     private final OkHttpClient client;
+    /**
+     * Shares the connection pool, without the read and call timeouts of the long-lived streams. A Server-Sent Events
+     * stream holds a dispatcher slot until it ends.
+     */
+    private final OkHttpClient streamingClient;
+    private final ConnectStats connectStats = new ConnectStats();
+    private final CacheStats cacheStats;
 
     public OkHttpClientV4(BenchmarkConfig config) {
         var dispatcher = new Dispatcher();
@@ -22,14 +54,61 @@ public class OkHttpClientV4 implements HttpAgentClient {
         dispatcher.setMaxRequests(concurrency * 2);
         var connectTimeout = Duration.ofMillis(config.getClientConnectTimeoutMillis());
         var readTimeout = Duration.ofMillis(config.getClientSocketTimeoutMillis());
-        this.client =
+        var builder =
             new OkHttpClient.Builder()
                 .dispatcher(dispatcher)
+                // the default pool keeps 5 idle connections only, the prewarmed ones included
+                .connectionPool(new ConnectionPool(Math.max(concurrency, 5), 5, TimeUnit.MINUTES))
                 .callTimeout(connectTimeout.plus(readTimeout).plus(Duration.ofSeconds(10)))
                 .connectTimeout(connectTimeout)
                 .readTimeout(readTimeout)
                 .writeTimeout(readTimeout)
-                .build();
+                .eventListenerFactory(call -> new ConnectTimingListener(connectStats));
+        if (config.getClientSoLingerSeconds() >= 0 || config.isClientSoReuseAddress()) {
+            builder.socketFactory(new SocketOptionsSocketFactory(config.getClientSoLingerSeconds(),
+                                                                 config.isClientSoReuseAddress()));
+        }
+        if (config.isHttpsScenario()) {
+            builder.sslSocketFactory(BenchmarkTls.trustAllSslContext().getSocketFactory(),
+                                     BenchmarkTls.TRUST_ALL_MANAGER)
+                   .hostnameVerifier((hostname, session) -> true);
+        }
+        if (config.isCacheScenario()) {
+            builder.cache(temporaryCache(config.getClientCacheMaxBytes()));
+            this.cacheStats = new CacheStats();
+        } else {
+            this.cacheStats = null;
+        }
+        this.client = builder.build();
+        var streamingDispatcher = new Dispatcher();
+        streamingDispatcher.setMaxRequestsPerHost(config.getStreams() + 10);
+        streamingDispatcher.setMaxRequests(config.getStreams() + 10);
+        this.streamingClient = client.newBuilder()
+                                     .dispatcher(streamingDispatcher)
+                                     .readTimeout(Duration.ZERO)
+                                     .callTimeout(Duration.ZERO)
+                                     .build();
+    }
+
+    /**
+     * The disk cache in a temporary directory, deleted with its entries at the JVM exit.
+     */
+    private static Cache temporaryCache(long maxBytes) {
+        File directory;
+        try {
+            directory = Files.createTempDirectory("okhttp-benchmark-cache").toFile();
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException(ioEx);
+        }
+        var cache = new Cache(directory, maxBytes);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cache.delete();
+                Files.deleteIfExists(directory.toPath());
+            } catch (IOException ignore) {
+            }
+        }));
+        return cache;
     }
 
     private static void addHeaders(Request.Builder request, HttpClientContext httpClientContext) {
@@ -49,13 +128,125 @@ public class OkHttpClientV4 implements HttpAgentClient {
         BenchmarkRunner.run(new OkHttpClientV4(benchmarkConfig), benchmarkConfig);
     }
 
+    @Override
+    public Optional<ConnectStats> connectStats() {
+        return Optional.of(connectStats);
+    }
+
+    @Override
+    public Optional<CacheStats> cacheStats() {
+        return Optional.ofNullable(cacheStats);
+    }
+
+    @Override
+    public WebSocketSession webSocket(URI target, Consumer<String> onMessage) {
+        var opened = new CompletableFuture<Void>();
+        var closed = new CompletableFuture<Void>();
+        var listener = new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                opened.complete(null);
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                onMessage.accept(text);
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                closed.complete(null);
+            }
+
+            @Override
+            public void onClosed(WebSocket webSocket, int code, String reason) {
+                closed.complete(null);
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable throwable, Response response) {
+                opened.completeExceptionally(throwable);
+                closed.completeExceptionally(throwable);
+            }
+        };
+        var webSocket = streamingClient.newWebSocket(new Request.Builder().url(target.toString()).build(), listener);
+        opened.join();
+        return new WebSocketSession() {
+            @Override
+            public void send(String message) {
+                // queued and written by the web socket writer thread
+                if (!webSocket.send(message)) {
+                    throw new IllegalStateException("WebSocket closed or its send queue is full");
+                }
+            }
+
+            @Override
+            public void close() {
+                webSocket.close(WEBSOCKET_NORMAL_CLOSURE, null);
+            }
+
+            @Override
+            public CompletableFuture<Void> closed() {
+                return closed;
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<Void> serverSentEvents(URI target, Consumer<String> onEvent) {
+        var completed = new CompletableFuture<Void>();
+        var request = new Request.Builder().url(target.toString()).build();
+        EventSources.createFactory(streamingClient).newEventSource(request, new EventSourceListener() {
+            @Override
+            public void onEvent(EventSource eventSource, String id, String type, String data) {
+                onEvent.accept(data);
+            }
+
+            @Override
+            public void onClosed(EventSource eventSource) {
+                completed.complete(null);
+            }
+
+            @Override
+            public void onFailure(EventSource eventSource, Throwable throwable, Response response) {
+                completed.completeExceptionally(throwable != null ? throwable :
+                                                    new IllegalStateException(
+                                                        "Server-Sent Events stream failed with status " +
+                                                            (response == null ? "none" : response.code())));
+            }
+        });
+        return completed;
+    }
+
+    /**
+     * Records the disk cache outcome from the network and cache responses of the call.
+     */
+    private void recordCacheOutcome(Response response, long startNanos, HttpClientResponse httpClientResponse) {
+        if (cacheStats == null) {
+            return;
+        }
+        var networkResponse = response.networkResponse();
+        if (response.cacheResponse() == null) {
+            cacheStats.record(CacheStats.Outcome.MISS, startNanos, 0);
+        } else if (networkResponse == null) {
+            cacheStats.record(CacheStats.Outcome.HIT, startNanos, httpClientResponse.responseBodyLength());
+        } else if (networkResponse.code() == HTTP_NOT_MODIFIED) {
+            cacheStats.record(CacheStats.Outcome.REVALIDATED, startNanos, httpClientResponse.responseBodyLength());
+        } else {
+            cacheStats.record(CacheStats.Outcome.MISS, startNanos, 0);
+        }
+    }
+
     @Override
     public HttpClientResponse get(URI target, HttpClientContext httpClientContext) {
         try {
             var requestBld = new Request.Builder().url(target.toURL()).get();
             addHeaders(requestBld, httpClientContext);
+            long start = System.nanoTime();
             var response = client.newCall(requestBld.build()).execute();
-            return toHttpClientResponse(response);
+            var httpClientResponse = toHttpClientResponse(response);
+            recordCacheOutcome(response, start, httpClientResponse);
+            return httpClientResponse;
         } catch (MalformedURLException e) {
             throw new RuntimeException(e);
         } catch (IOException ioEx) {
@@ -79,4 +270,82 @@ public class OkHttpClientV4 implements HttpAgentClient {
             throw new UncheckedIOException(ioEx);
         }
     }
+
+    /**
+     * Times the socket connect, including the TLS handshake for https, one listener per call.
+     */
+    private static final class ConnectTimingListener extends EventListener {
+
+        private final ConnectStats connectStats;
+        private long connectStartNanos;
+
+        private ConnectTimingListener(ConnectStats connectStats) {
+            this.connectStats = connectStats;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStartNanos = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            connectStats.connected(connectStartNanos);
+        }
+
+        @Override
+        public void connectFailed(Call call,
+                                  InetSocketAddress inetSocketAddress,
+                                  Proxy proxy,
+                                  Protocol protocol,
+                                  IOException ioe) {
+            connectStats.connectFailed();
+        }
+    }
+
+    private static final class SocketOptionsSocketFactory extends SocketFactory {
+
+        private final SocketFactory delegate = SocketFactory.getDefault();
+        private final int soLingerSeconds;
+        private final boolean soReuseAddress;
+
+        private SocketOptionsSocketFactory(int soLingerSeconds, boolean soReuseAddress) {
+            this.soLingerSeconds = soLingerSeconds;
+            this.soReuseAddress = soReuseAddress;
+        }
+
+        private Socket configure(Socket socket) throws SocketException {
+            if (soLingerSeconds >= 0) {
+                socket.setSoLinger(true, soLingerSeconds);
+            }
+            socket.setReuseAddress(soReuseAddress);
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return configure(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return configure(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return configure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+            return configure(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
 }
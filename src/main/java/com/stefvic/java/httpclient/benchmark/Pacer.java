@@ -0,0 +1,65 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Lock free fixed rate pacer, every caller takes the next send slot and parks until it is due.
+ */
+final class Pacer {
+
+    private static final Pacer UNPACED = new Pacer(0);
+
+    private final long intervalNanos;
+    private final AtomicLong nextSlotNanos = new AtomicLong();
+
+    private Pacer(long intervalNanos) {
+        this.intervalNanos = intervalNanos;
+        this.nextSlotNanos.set(System.nanoTime());
+    }
+
+    static Pacer of(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            return UNPACED;
+        }
+        return new Pacer(Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond)));
+    }
+
+    boolean isPaced() {
+        return intervalNanos > 0;
+    }
+
+    /**
+     * Restarts the slots from now, so an idle period is not followed by a burst.
+     */
+    void restart() {
+        nextSlotNanos.set(System.nanoTime());
+    }
+
+    /**
+     * Waits for the next slot and returns its scheduled time in nanos.
+     */
+    long acquire() {
+        if (!isPaced()) {
+            return System.nanoTime();
+        }
+        long slot = nextSlotNanos.getAndAdd(intervalNanos);
+        long waitNanos;
+        while ((waitNanos = slot - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+        return slot;
+    }
+
+    <T> Supplier<T> paced(Supplier<T> supplier) {
+        if (!isPaced()) {
+            return supplier;
+        }
+        return () -> {
+            acquire();
+            return supplier.get();
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Measured benchmark phase result: requests, errors, wall clock bounds and latency histogram.
+ * <p>
+ * The bounds are epoch nanos so results of different JVMs started at the same time can be merged, the histograms
+ * share the same layout and merge without loss.
+ */
+@Getter
+final class PhaseResult {
+
+    private final String name;
+    private final long requests;
+    private final long errors;
+    private final long startEpochNanos;
+    private final long endEpochNanos;
+    private final LatencyHistogram latency;
+
+    PhaseResult(String name,
+                long requests,
+                long errors,
+                long startEpochNanos,
+                long endEpochNanos,
+                LatencyHistogram latency) {
+        this.name = name;
+        this.requests = requests;
+        this.errors = errors;
+        this.startEpochNanos = startEpochNanos;
+        this.endEpochNanos = endEpochNanos;
+        this.latency = latency;
+    }
+
+    static PhaseResult merge(String name, List<PhaseResult> results) {
+        var latency = new LatencyHistogram();
+        results.forEach(result -> latency.add(result.latency));
+        return new PhaseResult(name,
+                               results.stream().mapToLong(PhaseResult::getRequests).sum(),
+                               results.stream().mapToLong(PhaseResult::getErrors).sum(),
+                               results.stream().mapToLong(PhaseResult::getStartEpochNanos).min().orElse(0),
+                               results.stream().mapToLong(PhaseResult::getEndEpochNanos).max().orElse(0),
+                               latency);
+    }
+
+    static PhaseResult readFrom(DataInput input) throws IOException {
+        return new PhaseResult(input.readUTF(),
+                               input.readLong(),
+                               input.readLong(),
+                               input.readLong(),
+                               input.readLong(),
+                               LatencyHistogram.readFrom(input));
+    }
+
+    void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(name);
+        output.writeLong(requests);
+        output.writeLong(errors);
+        output.writeLong(startEpochNanos);
+        output.writeLong(endEpochNanos);
+        latency.writeTo(output);
+    }
+
+    Duration duration() {
+        return Duration.ofNanos(endEpochNanos - startEpochNanos);
+    }
+
+    double requestsPerSecond() {
+        return requests * 1000.0 / Math.max(duration().toMillis(), 1);
+    }
+
+    @Override
+    public String toString() {
+        return name + " requests=" + requests +
+            " errors=" + errors +
+            " durationMillis=" + duration().toMillis() +
+            String.format(" requestsPerSecond=%.1f", requestsPerSecond()) +
+            " latency: " + latency.toMillisSummary();
+    }
+}
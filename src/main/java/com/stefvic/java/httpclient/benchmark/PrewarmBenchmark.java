@@ -0,0 +1,104 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.HOLD_PARAMETER;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.PREWARM_RESOURCE;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold but pre-warmed benchmark of a client in a fresh JVM: the first {@code benchmark.prewarm.measure.millis} of
+ * concurrent GET traffic right after the client construction, with the connection pool pre-warmed by
+ * {@link HttpAgentClient#prewarm} when {@code benchmark.prewarm} is true, without it otherwise. See the
+ * {@code prewarmBenchmark} Gradle task running both modes in turn.
+ * <pre>
+ * PrewarmBenchmark clientSimpleClassName
+ * </pre>
+ */
+public final class PrewarmBenchmark {
+
+    private PrewarmBenchmark() {
+        throw new AssertionError("No instance");
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Expected arguments: client");
+        }
+        var benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
+        CpuAffinity.pin(benchmarkConfig.getClientCpus());
+        var httpAgentClient = BenchmarkUtils.newHttpAgentClient(args[0], benchmarkConfig);
+
+        if (benchmarkConfig.isPrewarm()) {
+            long start = System.nanoTime();
+            prewarm(httpAgentClient, benchmarkConfig);
+            System.out.printf("Prewarm %s connections=%d millis=%.1f%n",
+                              args[0],
+                              prewarmConnections(benchmarkConfig),
+                              (System.nanoTime() - start) / (double) TimeUnit.MILLISECONDS.toNanos(1));
+            httpAgentClient.connectStats().ifPresent(ConnectStats::reset);
+        }
+
+        var concurrency = benchmarkConfig.getConcurrency();
+        var routes = BenchmarkRoutes.of(benchmarkConfig);
+        var get = BenchmarkRunner.benchmarkGet(httpAgentClient, benchmarkConfig, routes);
+        var duration = Duration.ofMillis(benchmarkConfig.getPrewarmMeasureMillis());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            List<CompletableFuture<Void>> callers = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                callers.add(CompletableFuture.runAsync(() -> {
+                    while (System.nanoTime() - end < 0) {
+                        try {
+                            get.get();
+                        } catch (RuntimeException e) {
+                            // counted by the routes
+                        }
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).join();
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            var latency = routes.latency();
+
+            System.out.println("First " + duration.toMillis() + " millis " + args[0] +
+                                   " prewarm=" + benchmarkConfig.isPrewarm() +
+                                   " concurrency=" + concurrency +
+                                   " requests=" + latency.count() +
+                                   " errors=" + routes.errors() +
+                                   " latency: " + latency.toMillisSummary());
+            httpAgentClient.connectStats()
+                           .ifPresent(connectStats -> System.out.println("First " + duration.toMillis() +
+                                                                             " millis connect stats: " +
+                                                                             connectStats.stats(elapsed)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Pre-warms the connections of every server port, the benchmark routes.
+     */
+    static void prewarm(HttpAgentClient httpAgentClient, BenchmarkConfig benchmarkConfig) {
+        var connections = prewarmConnections(benchmarkConfig);
+        var ports = benchmarkConfig.getServerPorts();
+        for (int port = benchmarkConfig.getPort(); port < benchmarkConfig.getPort() + ports; port++) {
+            var target = BenchmarkRunner.target(benchmarkConfig, port, PREWARM_RESOURCE + "?" + HOLD_PARAMETER + "=" +
+                benchmarkConfig.getPrewarmHoldMillis());
+            httpAgentClient.prewarm(target, Math.max(connections / ports, 1));
+        }
+    }
+
+    private static int prewarmConnections(BenchmarkConfig benchmarkConfig) {
+        return benchmarkConfig.getPrewarmConnections() > 0 ?
+            benchmarkConfig.getPrewarmConnections() :
+            benchmarkConfig.getConcurrency();
+    }
+}
@@ -1,25 +1,94 @@
 package com.stefvic.java.httpclient.benchmark;
 
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_ACCEPT_HEADER;
+import static com.stefvic.java.httpclient.benchmark.Constants.HTTP_CONTENT_TYPE_EVENT_STREAM;
+
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.AttributeKey;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import javax.net.ssl.SSLException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
 import reactor.netty.resources.ConnectionProvider;
 
-public class ReactorNettyClient implements HttpAgentClient {
+public class ReactorNettyClient implements HttpAgentClient, StreamingAgentClient {
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final int DEFAULT_MAX_FRAME_PAYLOAD_BYTES = 65536;
+    private static final AttributeKey<Long> CONNECT_START_NANOS = AttributeKey.valueOf("benchmarkConnectStartNanos");
 
     private final HttpClient client;
+    private final HttpClient streamingClient;
+    private final ConnectStats connectStats = new ConnectStats();
+    /**
+     * The response headers are copied for the cache scenario only, read by the {@link CachingHttpAgentClient}.
+     */
+    private final boolean copyResponseHeaders;
+    private final int maxFramePayloadBytes;
 
     public ReactorNettyClient(BenchmarkConfig benchmarkConfig) {
-        this.client = HttpClient.create(ConnectionProvider.builder("http")
-                                                          .maxConnections(benchmarkConfig.getConcurrency())
-                                                          .build())
-                                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, benchmarkConfig.getClientConnectTimeoutMillis())
-                                .responseTimeout(Duration.ofMillis(benchmarkConfig.getClientSocketTimeoutMillis()));
+        this.client = configure(HttpClient.create(ConnectionProvider.builder("http")
+                                                                    .maxConnections(benchmarkConfig.getConcurrency())
+                                                                    .build()),
+                                benchmarkConfig);
+        // a stream holds its connection until it ends, without response timeout between the reads
+        this.streamingClient = configure(HttpClient.create(ConnectionProvider.builder("streams")
+                                                                             .maxConnections(benchmarkConfig.getStreams())
+                                                                             .build()),
+                                         benchmarkConfig).responseTimeout(null);
+        this.copyResponseHeaders = benchmarkConfig.isCacheScenario();
+        this.maxFramePayloadBytes = Math.max(DEFAULT_MAX_FRAME_PAYLOAD_BYTES, benchmarkConfig.getStreamMessageBytes());
+    }
+
+    private HttpClient configure(HttpClient httpClient, BenchmarkConfig benchmarkConfig) {
+        httpClient = httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, benchmarkConfig.getClientConnectTimeoutMillis())
+                               .responseTimeout(Duration.ofMillis(benchmarkConfig.getClientSocketTimeoutMillis()))
+                               .doOnChannelInit((observer, channel, remoteAddress) ->
+                                                    channel.attr(CONNECT_START_NANOS).set(System.nanoTime()))
+                               .doOnConnected(connection -> {
+                                   Long connectStart = connection.channel().attr(CONNECT_START_NANOS).get();
+                                   if (connectStart != null) {
+                                       connectStats.connected(connectStart);
+                                   }
+                               });
+        if (benchmarkConfig.getClientSoLingerSeconds() >= 0) {
+            httpClient = httpClient.option(ChannelOption.SO_LINGER, benchmarkConfig.getClientSoLingerSeconds());
+        }
+        if (benchmarkConfig.isClientSoReuseAddress()) {
+            httpClient = httpClient.option(ChannelOption.SO_REUSEADDR, true);
+        }
+        if (benchmarkConfig.isHttpsScenario()) {
+            var sslContext = trustAllSslContext();
+            httpClient = httpClient.secure(sslContextSpec -> sslContextSpec.sslContext(sslContext));
+        }
+        return httpClient;
+    }
+
+    private static SslContext trustAllSslContext() {
+        try {
+            return SslContextBuilder.forClient()
+                                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                                    .build();
+        } catch (SSLException sslEx) {
+            throw new IllegalStateException(sslEx);
+        }
     }
 
     private static Consumer<HttpHeaders> addHeaders(HttpClientContext httpClientContext) {
@@ -28,24 +97,62 @@ public class ReactorNettyClient implements HttpAgentClient {
                                                    value -> httpHeaders.add(name, value)));
     }
 
+    private HttpClientResponse toHttpClientResponse(int statusCode, HttpHeaders responseHeaders, byte[] body) {
+        var response = HttpClientResponse.builder()
+                                         .statusCode(statusCode)
+                                         .responseBody(body);
+        if (copyResponseHeaders) {
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            responseHeaders.names().forEach(name -> headers.put(name, responseHeaders.getAll(name)));
+            response.headers(headers);
+        }
+        return response.build();
+    }
+
     public static void main(String[] args) {
         BenchmarkConfig benchmarkConfig = BenchmarkUtils.buildFormSysProperties();
         BenchmarkRunner.run(new ReactorNettyClient(benchmarkConfig), benchmarkConfig);
     }
 
 
+    @Override
+    public Optional<ConnectStats> connectStats() {
+        return Optional.of(connectStats);
+    }
+
     @Override
     public HttpClientResponse get(URI target, HttpClientContext httpClientContext) {
+        return sendGet(target, httpClientContext).block();
+    }
+
+    /**
+     * Cancelling the response closes the connection.
+     */
+    @Override
+    public CompletableFuture<HttpClientResponse> getAsync(URI target,
+                                                          HttpClientContext httpClientContext,
+                                                          Executor executor) {
+        return sendGet(target, httpClientContext).toFuture();
+    }
+
+    private Mono<HttpClientResponse> sendGet(URI target, HttpClientContext httpClientContext) {
         return client.headers(addHeaders(httpClientContext))
                      .get()
                      .uri(target)
                      .responseSingle((r, bytes) ->
                                          bytes.asByteArray()
-                                              .map(t -> HttpClientResponse.builder()
-                                                                          .statusCode(r.status().code())
-                                                                          .responseBody(t)
-                                                                          .build()))
-                     .block();
+                                              // no content, e.g. a 304 revalidation response
+                                              .defaultIfEmpty(EMPTY_BODY)
+                                              .map(t -> toHttpClientResponse(r.status().code(), r.responseHeaders(), t)));
+    }
+
+    /**
+     * Warms up the event loops and the host name resolver before opening the connections.
+     */
+    @Override
+    public void prewarm(URI target, int connections) {
+        client.warmup().block();
+        HttpAgentClient.super.prewarm(target, connections);
     }
 
     @Override
@@ -56,10 +163,89 @@ public class ReactorNettyClient implements HttpAgentClient {
                      .send(Flux.just(Unpooled.wrappedBuffer(httpClientContext.getPostBody())))
                      .responseSingle((r, bytes) ->
                                          bytes.asByteArray()
-                                              .map(t -> HttpClientResponse.builder()
-                                                                          .statusCode(r.status().code())
-                                                                          .responseBody(t)
-                                                                          .build()))
+                                              .defaultIfEmpty(EMPTY_BODY)
+                                              .map(t -> toHttpClientResponse(r.status().code(), r.responseHeaders(), t)))
                      .block();
     }
+
+    @Override
+    public WebSocketSession webSocket(URI target, Consumer<String> onMessage) {
+        Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+        var opened = new CompletableFuture<Void>();
+        var closed = new CompletableFuture<Void>();
+        streamingClient.websocket(WebsocketClientSpec.builder().maxFramePayloadLength(maxFramePayloadBytes).build())
+                       .uri(target)
+                       .handle((in, out) -> {
+                           opened.complete(null);
+                           in.aggregateFrames(maxFramePayloadBytes)
+                             .receive()
+                             .asString()
+                             .subscribe(onMessage, closed::completeExceptionally, () -> closed.complete(null));
+                           // the connection is closed once the outbound completes
+                           return out.sendString(outbound.asFlux());
+                       })
+                       .subscribe(null, failure -> {
+                           opened.completeExceptionally(failure);
+                           closed.completeExceptionally(failure);
+                       });
+        opened.join();
+        return new WebSocketSession() {
+            @Override
+            public void send(String message) {
+                outbound.emitNext(message, Sinks.EmitFailureHandler.FAIL_FAST);
+            }
+
+            @Override
+            public void close() {
+                outbound.emitComplete(Sinks.EmitFailureHandler.FAIL_FAST);
+            }
+
+            @Override
+            public CompletableFuture<Void> closed() {
+                return closed;
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<Void> serverSentEvents(URI target, Consumer<String> onEvent) {
+        return streamingClient.headers(httpHeaders -> httpHeaders.add(HTTP_ACCEPT_HEADER, HTTP_CONTENT_TYPE_EVENT_STREAM))
+                              .get()
+                              .uri(target)
+                              .response((r, body) -> {
+                                  if (r.status().code() != 200) {
+                                      return Mono.<Void>error(new IllegalStateException(
+                                          "Server-Sent Events stream failed with status " + r.status().code()));
+                                  }
+                                  var lines = new LineSplitter(onEvent);
+                                  return body.asString(StandardCharsets.UTF_8).doOnNext(lines::append).then();
+                              })
+                              .then()
+                              .toFuture();
+    }
+
+    /**
+     * Splits the received chunks into the event stream lines.
+     */
+    private static final class LineSplitter {
+
+        private final Consumer<String> onEvent;
+        private final StringBuilder line = new StringBuilder();
+
+        private LineSplitter(Consumer<String> onEvent) {
+            this.onEvent = onEvent;
+        }
+
+        private void append(String chunk) {
+            int start = 0;
+            int end;
+            while ((end = chunk.indexOf('\n', start)) >= 0) {
+                line.append(chunk, start, end);
+                StreamingAgentClient.onServerSentEventLine(line.toString(), onEvent);
+                line.setLength(0);
+                start = end + 1;
+            }
+            line.append(chunk, start, chunk.length());
+        }
+    }
 }
@@ -0,0 +1,378 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Benchmark server metrics in the Prometheus text exposition format, served at {@value #METRICS_RESOURCE} and reset at
+ * {@value #METRICS_RESET_RESOURCE}: handled requests by resource and status code, handling latency histograms, request
+ * and response content bytes, connections and network bytes, thread pool utilisation, selector keys and the TLS
+ * handshakes.
+ * <p>
+ * The histograms are copied before they are written, so the buckets, the count and the sum of one scrape agree. Scrapes
+ * and resets are serialized, on a phase boundary, when no request is in flight, they are exact.
+ */
+final class ServerMetrics {
+
+    static final String METRICS_RESOURCE = "/metrics";
+    static final String METRICS_RESET_RESOURCE = "/metrics/reset";
+    static final String PREFIX = "benchmark_server_";
+    static final String REQUEST_DURATION = "request_duration_seconds";
+    private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String OTHER_RESOURCE = "other";
+    /**
+     * Latency histograms bucket upper bounds, in seconds.
+     */
+    private static final double[] LATENCY_BUCKETS_SECONDS = {
+        0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final Set<String> resourceLabels;
+    private final QueuedThreadPool threadPool;
+    private final TlsHandshakeStats tlsHandshakeStats;
+    private final ConnectionStatistics connectionStatistics = new NetworkConnectionStatistics();
+    private final List<ServerConnector> connectors = new CopyOnWriteArrayList<>();
+    private final Map<String, ResourceMetrics> resources = new ConcurrentHashMap<>();
+    private final LongAccumulator maxBusyThreads = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param resourceLabels the resources measured apart, the other targets are measured together
+     * @param tlsHandshakeStats the TLS stats, {@code null} for plain http
+     */
+    ServerMetrics(Set<String> resourceLabels, QueuedThreadPool threadPool, TlsHandshakeStats tlsHandshakeStats) {
+        this.resourceLabels = resourceLabels;
+        this.threadPool = threadPool;
+        this.tlsHandshakeStats = tlsHandshakeStats;
+    }
+
+    static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    /**
+     * Parses a scrape into the sample values by {@code name{labels}}, without the comment lines.
+     */
+    static Map<String, Double> parse(String exposition) {
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : exposition.split("\n")) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int valueStart = line.lastIndexOf(' ');
+            samples.put(line.substring(0, valueStart), Double.parseDouble(line.substring(valueStart + 1)));
+        }
+        return samples;
+    }
+
+    /**
+     * Connection, network bytes and selector stats of the connector.
+     */
+    void monitor(ServerConnector connector) {
+        connector.addBean(connectionStatistics);
+        connectors.add(connector);
+    }
+
+    Handler handler(Handler handler) {
+        var metricsHandler = new MetricsHandler();
+        metricsHandler.setHandler(handler);
+        return metricsHandler;
+    }
+
+    synchronized String scrape() {
+        var exposition = new Exposition();
+
+        exposition.family("requests_total", "counter", "Handled requests by resource and status code.");
+        var snapshots = new TreeMap<String, LatencyHistogram>();
+        new TreeMap<>(resources).forEach((resource, metrics) -> {
+            new TreeMap<>(metrics.responses).forEach(
+                (status, count) -> exposition.sample("requests_total",
+                                                     label("resource", resource) + "," + label("code", status.toString()),
+                                                     count.sum()));
+            snapshots.put(resource, metrics.latency.copy());
+        });
+        exposition.family(REQUEST_DURATION, "histogram", "Request handling latency, until the async completion.");
+        snapshots.forEach((resource, latency) -> exposition.histogram(REQUEST_DURATION, label("resource", resource),
+                                                                      latency));
+        exposition.family("request_content_bytes_total", "counter", "Request content bytes read.");
+        new TreeMap<>(resources).forEach((resource, metrics) -> exposition.sample(
+            "request_content_bytes_total", label("resource", resource), metrics.requestBytes.sum()));
+        exposition.family("response_content_bytes_total", "counter", "Response content bytes written.");
+        new TreeMap<>(resources).forEach((resource, metrics) -> exposition.sample(
+            "response_content_bytes_total", label("resource", resource), metrics.responseBytes.sum()));
+
+        exposition.family("connections", "gauge", "Open connections.")
+                  .sample("connections", "", connectionStatistics.getConnections());
+        exposition.family("connections_max", "gauge", "Max open connections.")
+                  .sample("connections_max", "", connectionStatistics.getConnectionsMax());
+        exposition.family("connections_total", "counter", "Opened connections.")
+                  .sample("connections_total", "", connectionStatistics.getConnectionsTotal());
+        exposition.family("network_received_bytes_total", "counter", "Bytes received by the closed connections.")
+                  .sample("network_received_bytes_total", "", connectionStatistics.getBytesIn());
+        exposition.family("network_sent_bytes_total", "counter", "Bytes sent by the closed connections.")
+                  .sample("network_sent_bytes_total", "", connectionStatistics.getBytesOut());
+
+        exposition.family("thread_pool_threads", "gauge", "Thread pool threads.")
+                  .sample("thread_pool_threads", "", threadPool.getThreads());
+        exposition.family("thread_pool_max_threads", "gauge", "Thread pool max threads.")
+                  .sample("thread_pool_max_threads", "", threadPool.getMaxThreads());
+        exposition.family("thread_pool_busy_threads", "gauge", "Thread pool busy threads.")
+                  .sample("thread_pool_busy_threads", "", threadPool.getBusyThreads());
+        exposition.family("thread_pool_busy_threads_max", "gauge", "Max busy threads seen by the handled requests.")
+                  .sample("thread_pool_busy_threads_max", "", maxBusyThreads.get());
+        exposition.family("thread_pool_queue_size", "gauge", "Thread pool queued jobs.")
+                  .sample("thread_pool_queue_size", "", threadPool.getQueueSize());
+        exposition.family("thread_pool_utilization", "gauge", "Thread pool utilization rate.")
+                  .sample("thread_pool_utilization", "", threadPool.getUtilizationRate());
+
+        exposition.family("selector_keys", "gauge", "Selector registered keys.");
+        forEachSelector((labels, selector) -> exposition.sample("selector_keys", labels, selector.getTotalKeys()));
+        exposition.family("selector_selected_keys_max", "gauge", "Selector max selected keys by a select.");
+        forEachSelector((labels, selector) -> exposition.sample("selector_selected_keys_max", labels,
+                                                                selector.getMaxSelectedKeys()));
+        exposition.family("selector_selected_keys_average", "gauge", "Selector average selected keys by a select.");
+        forEachSelector((labels, selector) -> exposition.sample("selector_selected_keys_average", labels,
+                                                                selector.getAverageSelectedKeys()));
+
+        if (tlsHandshakeStats != null) {
+            tlsHandshakeStats.writeTo(exposition);
+        }
+        return exposition.toString();
+    }
+
+    synchronized void reset() {
+        resources.values().forEach(ResourceMetrics::reset);
+        maxBusyThreads.reset();
+        connectionStatistics.reset();
+        forEachSelector((labels, selector) -> selector.resetStats());
+        if (tlsHandshakeStats != null) {
+            tlsHandshakeStats.reset();
+        }
+    }
+
+    private void forEachSelector(SelectorConsumer consumer) {
+        for (ServerConnector connector : connectors) {
+            int index = 0;
+            for (ManagedSelector selector : connector.getSelectorManager().getBeans(ManagedSelector.class)) {
+                consumer.accept(label("port", String.valueOf(connector.getPort())) + "," +
+                                    label("selector", String.valueOf(index++)), selector);
+            }
+        }
+    }
+
+    private ResourceMetrics resource(String target) {
+        return resources.computeIfAbsent(resourceLabels.contains(target) ? target : OTHER_RESOURCE,
+                                         ignore -> new ResourceMetrics());
+    }
+
+    private interface SelectorConsumer {
+
+        void accept(String labels, ManagedSelector selector);
+    }
+
+    /**
+     * Prometheus text format writer, the metric names are prefixed by {@value #PREFIX}.
+     */
+    static final class Exposition {
+
+        private final StringBuilder text = new StringBuilder(4096);
+
+        private static String seconds(double seconds) {
+            return BigDecimal.valueOf(seconds).stripTrailingZeros().toPlainString();
+        }
+
+        Exposition family(String name, String type, String help) {
+            text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+            text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+            return this;
+        }
+
+        Exposition sample(String name, String labels, long value) {
+            return sample(name, labels, String.valueOf(value));
+        }
+
+        Exposition sample(String name, String labels, double value) {
+            return sample(name, labels, String.valueOf(value));
+        }
+
+        /**
+         * Cumulative buckets, sum and count of a nanoseconds histogram, in seconds.
+         */
+        Exposition histogram(String name, String labels, LatencyHistogram histogram) {
+            var separator = labels.isEmpty() ? "" : ",";
+            for (double bucket : LATENCY_BUCKETS_SECONDS) {
+                var bucketNanos = (long) (bucket * TimeUnit.SECONDS.toNanos(1));
+                sample(name + "_bucket", labels + separator + label("le", seconds(bucket)),
+                       histogram.countAtOrBelow(bucketNanos));
+            }
+            var count = histogram.count();
+            sample(name + "_bucket", labels + separator + label("le", "+Inf"), count);
+            sample(name + "_sum", labels, histogram.sum() / (double) TimeUnit.SECONDS.toNanos(1));
+            return sample(name + "_count", labels, count);
+        }
+
+        private Exposition sample(String name, String labels, String value) {
+            text.append(PREFIX).append(name);
+            if (!labels.isEmpty()) {
+                text.append('{').append(labels).append('}');
+            }
+            text.append(' ').append(value).append('\n');
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    private static final class ResourceMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<Integer, LongAdder> responses = new ConcurrentHashMap<>();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+
+        private void record(Request baseRequest, long startNanos) {
+            record(baseRequest, startNanos, baseRequest.getResponse().getStatus());
+        }
+
+        private void record(Request baseRequest, long startNanos, int status) {
+            latency.recordSince(startNanos);
+            responses.computeIfAbsent(status, ignore -> new LongAdder()).increment();
+            requestBytes.add(baseRequest.getHttpInput().getContentConsumed());
+            responseBytes.add(baseRequest.getHttpChannel().getBytesWritten());
+        }
+
+        private void reset() {
+            latency.reset();
+            responses.values().forEach(LongAdder::reset);
+            requestBytes.reset();
+            responseBytes.reset();
+        }
+    }
+
+    /**
+     * Counts the network connections only, the TLS decrypted connections on top of them are not counted twice.
+     */
+    private static final class NetworkConnectionStatistics extends ConnectionStatistics {
+
+        private static boolean isNetwork(Connection connection) {
+            return !(connection.getEndPoint() instanceof SslConnection.DecryptedEndPoint);
+        }
+
+        @Override
+        public void onOpened(Connection connection) {
+            if (isNetwork(connection)) {
+                super.onOpened(connection);
+            }
+        }
+
+        @Override
+        public void onClosed(Connection connection) {
+            if (isNetwork(connection)) {
+                super.onClosed(connection);
+            }
+        }
+    }
+
+    /**
+     * Serves the metrics and measures the other requests, the async ones on their completion.
+     */
+    private final class MetricsHandler extends HandlerWrapper {
+
+        private void write(Request baseRequest, HttpServletResponse response, String content) throws IOException {
+            baseRequest.setHandled(true);
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            response.setStatus(200);
+            response.setContentType(METRICS_CONTENT_TYPE);
+            response.setContentLength(bytes.length);
+            OutputStream outputStream = response.getOutputStream();
+            outputStream.write(bytes);
+            outputStream.flush();
+        }
+
+        @Override
+        public void handle(String target,
+                           Request baseRequest,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException, ServletException {
+            if (target.equals(METRICS_RESOURCE)) {
+                write(baseRequest, response, scrape());
+                return;
+            } else if (target.equals(METRICS_RESET_RESOURCE)) {
+                reset();
+                write(baseRequest, response, "Ok");
+                return;
+            }
+            long start = System.nanoTime();
+            maxBusyThreads.accumulate(threadPool.getBusyThreads());
+            var metrics = resource(target);
+            try {
+                super.handle(target, baseRequest, request, response);
+            } finally {
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new AsyncListener() {
+                        // the timed out or failed requests are recorded right away, as a 504 or a 500, whether or
+                        // not the completion follows, every request once
+                        private final AtomicBoolean recorded = new AtomicBoolean();
+
+                        @Override
+                        public void onComplete(AsyncEvent event) {
+                            if (recorded.compareAndSet(false, true)) {
+                                metrics.record(baseRequest, start);
+                            }
+                        }
+
+                        @Override
+                        public void onTimeout(AsyncEvent event) {
+                            if (recorded.compareAndSet(false, true)) {
+                                metrics.record(baseRequest, start, HttpStatus.GATEWAY_TIMEOUT_504);
+                            }
+                        }
+
+                        @Override
+                        public void onError(AsyncEvent event) {
+                            if (recorded.compareAndSet(false, true)) {
+                                metrics.record(baseRequest, start, HttpStatus.INTERNAL_SERVER_ERROR_500);
+                            }
+                        }
+
+                        @Override
+                        public void onStartAsync(AsyncEvent event) {
+                        }
+                    });
+                } else {
+                    metrics.record(baseRequest, start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Long-lived streams next to the request/response {@link HttpAgentClient}: WebSocket text messages and Server-Sent
+ * Events. The listeners are called from the client I/O threads and must not block.
+ */
+public interface StreamingAgentClient {
+
+    String SSE_DATA_FIELD = "data:";
+
+    /**
+     * Passes the data of a Server-Sent Events {@code data} field line to the listener, the other lines are ignored.
+     * Every event is expected to carry a single data line.
+     */
+    static void onServerSentEventLine(String line, Consumer<String> onEvent) {
+        if (!line.startsWith(SSE_DATA_FIELD)) {
+            return;
+        }
+        int start = SSE_DATA_FIELD.length();
+        if (line.length() > start && line.charAt(start) == ' ') {
+            start++;
+        }
+        onEvent.accept(line.substring(start));
+    }
+
+    /**
+     * Opens a WebSocket, every received whole text message is passed to the listener.
+     */
+    WebSocketSession webSocket(URI target, Consumer<String> onMessage);
+
+    /**
+     * Subscribes to a Server-Sent Events stream, every event data is passed to the listener. Completes when the server
+     * ends the stream.
+     */
+    CompletableFuture<Void> serverSentEvents(URI target, Consumer<String> onEvent);
+
+    interface WebSocketSession {
+
+        /**
+         * Sends a whole text message, one sender at a time.
+         */
+        void send(String message);
+
+        void close();
+
+        /**
+         * Completes when the session ends, closed by either side, or exceptionally when it fails.
+         */
+        CompletableFuture<Void> closed();
+    }
+}
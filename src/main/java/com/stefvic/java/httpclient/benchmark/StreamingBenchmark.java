@@ -0,0 +1,274 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.MESSAGES_PARAMETER;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.RATE_PARAMETER;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.SIZE_PARAMETER;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.SSE_RESOURCE;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.WEBSOCKET_ECHO_RESOURCE;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streaming benchmark of {@code benchmark.streams} concurrent streams per protocol, every one of them on its own
+ * connection:
+ * <ul>
+ * <li>WebSocket echo: every stream sends {@code benchmark.stream.messages} text messages to the server echo endpoint,
+ * at most {@code benchmark.stream.window} of them not yet echoed. The latency is the round trip from the scheduled
+ * send time. A stream fails when its window is not released within {@code benchmark.client.socket.timeout.millis} or
+ * when its session ends, its messages not echoed are counted as errors.</li>
+ * <li>Server-Sent Events: every stream receives {@code benchmark.stream.messages} events from the server. The latency
+ * is from the server send epoch time, so it is comparable only on the same host or with synchronized clocks.</li>
+ * </ul>
+ * Every message starts by its send time followed by the padding up to about {@code benchmark.stream.message.bytes}.
+ * The allocation per message is the bytes allocated by all the client JVM threads, including the benchmark senders,
+ * divided by the received messages.
+ */
+final class StreamingBenchmark {
+
+    /**
+     * Max length of the send time prefix, the nanos and a space.
+     */
+    private static final int SEND_TIME_PREFIX_LENGTH = 20;
+
+    private StreamingBenchmark() {
+        throw new AssertionError("No instance");
+    }
+
+    static void run(StreamingAgentClient streamingAgentClient, BenchmarkConfig benchmarkConfig) {
+        var warmupMessages = Math.max(benchmarkConfig.getStreamMessages() / 10, 1);
+        System.out.println("\nStart streams warmup, messages per stream " + warmupMessages);
+        webSocketEcho(streamingAgentClient, benchmarkConfig, warmupMessages);
+        serverSentEvents(streamingAgentClient, benchmarkConfig, warmupMessages);
+
+        System.out.println("\nStart streams benchmark: streams " + benchmarkConfig.getStreams() +
+                               ", messages per stream " + benchmarkConfig.getStreamMessages() +
+                               ", message bytes " + benchmarkConfig.getStreamMessageBytes() +
+                               ", rate per stream " + (benchmarkConfig.getStreamRate() > 0 ?
+            benchmarkConfig.getStreamRate() : "unpaced"));
+        System.out.println("WebSocket echo window " + benchmarkConfig.getStreamWindow() + ": " +
+                               webSocketEcho(streamingAgentClient, benchmarkConfig,
+                                             benchmarkConfig.getStreamMessages()));
+        System.out.println("Server-Sent Events: " +
+                               serverSentEvents(streamingAgentClient, benchmarkConfig,
+                                                benchmarkConfig.getStreamMessages()));
+    }
+
+    private static Result webSocketEcho(StreamingAgentClient streamingAgentClient,
+                                        BenchmarkConfig benchmarkConfig,
+                                        int messages) {
+        var streams = benchmarkConfig.getStreams();
+        var latency = new LatencyHistogram();
+        var received = new CountDownLatch((long) streams * messages);
+        var padding = padding(benchmarkConfig);
+        var target = webSocketTarget(benchmarkConfig);
+        List<StreamingAgentClient.WebSocketSession> sessions = new ArrayList<>(streams);
+        List<Semaphore> windows = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            var window = new Semaphore(benchmarkConfig.getStreamWindow());
+            var notReceived = new AtomicLong(messages);
+            windows.add(window);
+            var session = streamingAgentClient.webSocket(target, message -> {
+                latency.recordSince(sendTime(message));
+                window.release();
+                if (notReceived.getAndDecrement() > 0) {
+                    received.countDown();
+                }
+            });
+            // a dead session wakes up its sender and gives up its messages not echoed yet
+            session.closed().whenComplete((ignore, failure) -> {
+                window.release(benchmarkConfig.getStreamWindow());
+                for (long lost = notReceived.getAndSet(0); lost > 0; lost--) {
+                    received.countDown();
+                }
+            });
+            sessions.add(session);
+        }
+
+        ExecutorService senders = Executors.newFixedThreadPool(streams);
+        try {
+            var startAllocatedBytes = allocatedBytes();
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> sent = new ArrayList<>(streams);
+            for (int i = 0; i < streams; i++) {
+                var session = sessions.get(i);
+                var window = windows.get(i);
+                sent.add(CompletableFuture.runAsync(() -> {
+                    var pacer = Pacer.of(benchmarkConfig.getStreamRate());
+                    pacer.restart();
+                    for (int message = 0; message < messages; message++) {
+                        long slot = pacer.acquire();
+                        acquire(window, benchmarkConfig.getClientSocketTimeoutMillis());
+                        if (session.closed().isDone()) {
+                            throw new IllegalStateException("WebSocket session ended after " + message + " messages");
+                        }
+                        session.send(slot + " " + padding);
+                    }
+                }, senders));
+            }
+            var failures = joinAll(sent);
+            awaitQuietly(received, benchmarkConfig.getClientSocketTimeoutMillis());
+            var duration = Duration.ofNanos(System.nanoTime() - start);
+            return new Result(latency, duration, allocatedBytesSince(startAllocatedBytes),
+                              failures + Math.max((long) streams * messages - latency.count(), 0));
+        } finally {
+            senders.shutdownNow();
+            sessions.forEach(StreamingAgentClient.WebSocketSession::close);
+            // not to run into the next phase allocation
+            awaitTermination(senders, benchmarkConfig.getClientSocketTimeoutMillis());
+        }
+    }
+
+    private static Result serverSentEvents(StreamingAgentClient streamingAgentClient,
+                                           BenchmarkConfig benchmarkConfig,
+                                           int messages) {
+        var streams = benchmarkConfig.getStreams();
+        var latency = new LatencyHistogram();
+        var target = BenchmarkRunner.target(benchmarkConfig, benchmarkConfig.getPort(),
+                                            SSE_RESOURCE + "?" + MESSAGES_PARAMETER + "=" + messages +
+                                                "&" + SIZE_PARAMETER + "=" + benchmarkConfig.getStreamMessageBytes() +
+                                                "&" + RATE_PARAMETER + "=" + benchmarkConfig.getStreamRate());
+
+        var startAllocatedBytes = allocatedBytes();
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> streamed = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            streamed.add(streamingAgentClient.serverSentEvents(
+                target, event -> latency.record(BenchmarkUtils.epochNanos() - sendTime(event))));
+        }
+        var failures = joinAll(streamed);
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+        return new Result(latency, duration, allocatedBytesSince(startAllocatedBytes),
+                          failures + Math.max((long) streams * messages - latency.count(), 0));
+    }
+
+    private static URI webSocketTarget(BenchmarkConfig benchmarkConfig) {
+        var scheme = benchmarkConfig.isHttpsScenario() ? "wss" : "ws";
+        return URI.create(scheme + "://" + benchmarkConfig.getServerHost() + ":" + benchmarkConfig.getPort() +
+                              WEBSOCKET_ECHO_RESOURCE);
+    }
+
+    private static String padding(BenchmarkConfig benchmarkConfig) {
+        var length = Math.max(benchmarkConfig.getStreamMessageBytes() - SEND_TIME_PREFIX_LENGTH, 0);
+        return new String(BenchmarkUtils.randomContent(length), StandardCharsets.US_ASCII);
+    }
+
+    private static long sendTime(String message) {
+        return Long.parseLong(message, 0, message.indexOf(' '), 10);
+    }
+
+    /**
+     * Waits for all the streams and returns the failed ones.
+     */
+    private static long joinAll(List<CompletableFuture<Void>> streams) {
+        var failures = new LongAdder();
+        CompletableFuture.allOf(streams.stream()
+                                       .map(stream -> stream.exceptionally(failure -> {
+                                           failures.increment();
+                                           return null;
+                                       }))
+                                       .toArray(CompletableFuture[]::new))
+                         .join();
+        return failures.sum();
+    }
+
+    /**
+     * Acquires a window permit, failing the stream when no echo releases one within the timeout.
+     */
+    private static void acquire(Semaphore window, long timeoutMillis) {
+        try {
+            if (!window.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("WebSocket echo not received within " + timeoutMillis + " millis");
+            }
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("WebSocket send interrupted", interruptedEx);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch, long timeoutMillis) {
+        try {
+            latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor, long timeoutMillis) {
+        try {
+            executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException interruptedEx) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The bytes allocated so far by every live thread, by thread id.
+     */
+    private static Map<Long, Long> allocatedBytes() {
+        var threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var threadIds = threadMXBean.getAllThreadIds();
+        var threadsAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadIds);
+        Map<Long, Long> allocatedBytes = new HashMap<>(threadIds.length * 2);
+        for (int i = 0; i < threadIds.length; i++) {
+            if (threadsAllocatedBytes[i] >= 0) {
+                allocatedBytes.put(threadIds[i], threadsAllocatedBytes[i]);
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * The bytes allocated since the start snapshot by the threads alive now, the threads started since then from 0.
+     * The threads ended since then are left out, not to subtract their whole lifetime allocation.
+     */
+    private static long allocatedBytesSince(Map<Long, Long> startAllocatedBytes) {
+        long allocatedBytes = 0;
+        for (var threadAllocatedBytes : allocatedBytes().entrySet()) {
+            allocatedBytes += Math.max(threadAllocatedBytes.getValue() -
+                                           startAllocatedBytes.getOrDefault(threadAllocatedBytes.getKey(), 0L), 0);
+        }
+        return allocatedBytes;
+    }
+
+    private static final class Result {
+
+        private final LatencyHistogram latency;
+        private final Duration duration;
+        private final long allocatedBytes;
+        private final long errors;
+
+        private Result(LatencyHistogram latency, Duration duration, long allocatedBytes, long errors) {
+            this.latency = latency;
+            this.duration = duration;
+            this.allocatedBytes = allocatedBytes;
+            this.errors = errors;
+        }
+
+        @Override
+        public String toString() {
+            var messages = latency.count();
+            return String.format("messages=%d errors=%d messagesPerSecond=%.0f allocatedBytesPerMessage=%.0f " +
+                                     "latency: %s",
+                                 messages,
+                                 errors,
+                                 messages * 1000.0 / Math.max(duration.toMillis(), 1),
+                                 allocatedBytes / (double) Math.max(messages, 1),
+                                 latency.toMillisSummary());
+        }
+    }
+}
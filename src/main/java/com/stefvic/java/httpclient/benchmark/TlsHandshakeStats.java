@@ -0,0 +1,137 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+
+/**
+ * Server side TLS stats per negotiated cipher suite: full handshakes versus resumed sessions, handshake latency
+ * (from the TLS connection opened to the handshake succeeded) and handled requests, exported by the
+ * {@link ServerMetrics}.
+ * <p>
+ * A session is considered resumed when its id was already seen or when it was created before the connection was
+ * opened, the later covers the TLSv1.3 resumption where the session id is not reused. The seen session ids are
+ * bounded by the JDK default server session cache size, the least recently seen ones are evicted as they can not be
+ * resumed anymore either.
+ */
+final class TlsHandshakeStats implements SslHandshakeListener, Connection.Listener {
+
+    private static final int MAX_SEEN_SESSION_IDS = 20_480;
+
+    private final Map<SSLEngine, Long> handshakeStarts = new ConcurrentHashMap<>();
+    private final Map<SSLEngine, Long> connectionOpenedMillis = new ConcurrentHashMap<>();
+    private final Set<ByteBuffer> seenSessionIds = Collections.synchronizedSet(Collections.newSetFromMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+                return size() > MAX_SEEN_SESSION_IDS;
+            }
+        }));
+    private final Map<String, CipherSuiteStats> cipherSuites = new ConcurrentHashMap<>();
+    private final LongAdder failedHandshakes = new LongAdder();
+
+    @Override
+    public void onOpened(Connection connection) {
+        if (connection instanceof SslConnection) {
+            var sslEngine = ((SslConnection) connection).getSSLEngine();
+            connectionOpenedMillis.put(sslEngine, System.currentTimeMillis());
+            handshakeStarts.put(sslEngine, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void onClosed(Connection connection) {
+        if (connection instanceof SslConnection) {
+            var sslEngine = ((SslConnection) connection).getSSLEngine();
+            connectionOpenedMillis.remove(sslEngine);
+            handshakeStarts.remove(sslEngine);
+        }
+    }
+
+    @Override
+    public void handshakeSucceeded(Event event) {
+        var sslEngine = event.getSSLEngine();
+        Long handshakeStart = handshakeStarts.remove(sslEngine);
+        Long openedMillis = connectionOpenedMillis.remove(sslEngine);
+        SSLSession session = sslEngine.getSession();
+        var stats = cipherSuiteStats(session.getCipherSuite());
+        var newSessionId = seenSessionIds.add(ByteBuffer.wrap(session.getId()));
+        var createdBeforeOpened = openedMillis != null && session.getCreationTime() < openedMillis;
+        if (newSessionId && !createdBeforeOpened) {
+            stats.fullHandshakes.increment();
+        } else {
+            stats.resumedHandshakes.increment();
+        }
+        if (handshakeStart != null) {
+            stats.handshakeLatency.recordSince(handshakeStart);
+        }
+    }
+
+    @Override
+    public void handshakeFailed(Event event, Throwable failure) {
+        var sslEngine = event.getSSLEngine();
+        handshakeStarts.remove(sslEngine);
+        connectionOpenedMillis.remove(sslEngine);
+        failedHandshakes.increment();
+    }
+
+    void requestHandled(String cipherSuite) {
+        if (cipherSuite != null) {
+            cipherSuiteStats(cipherSuite).requests.increment();
+        }
+    }
+
+    void reset() {
+        cipherSuites.values().forEach(CipherSuiteStats::reset);
+        failedHandshakes.reset();
+    }
+
+    void writeTo(ServerMetrics.Exposition exposition) {
+        exposition.family("tls_handshakes_failed_total", "counter", "Failed TLS handshakes.")
+                  .sample("tls_handshakes_failed_total", "", failedHandshakes.sum());
+        exposition.family("tls_handshakes_total", "counter", "TLS handshakes by cipher suite, full or resumed.");
+        cipherSuites.forEach((cipherSuite, stats) -> {
+            var cipherSuiteLabel = ServerMetrics.label("cipher_suite", cipherSuite);
+            exposition.sample("tls_handshakes_total", cipherSuiteLabel + "," + ServerMetrics.label("session", "full"),
+                              stats.fullHandshakes.sum());
+            exposition.sample("tls_handshakes_total", cipherSuiteLabel + "," + ServerMetrics.label("session", "resumed"),
+                              stats.resumedHandshakes.sum());
+        });
+        exposition.family("tls_requests_total", "counter", "Handled requests by cipher suite.");
+        cipherSuites.forEach((cipherSuite, stats) -> exposition.sample(
+            "tls_requests_total", ServerMetrics.label("cipher_suite", cipherSuite), stats.requests.sum()));
+        exposition.family("tls_handshake_duration_seconds", "histogram",
+                          "TLS handshake latency, from the connection opened to the handshake succeeded.");
+        cipherSuites.forEach((cipherSuite, stats) -> exposition.histogram(
+            "tls_handshake_duration_seconds", ServerMetrics.label("cipher_suite", cipherSuite),
+            stats.handshakeLatency.copy()));
+    }
+
+    private CipherSuiteStats cipherSuiteStats(String cipherSuite) {
+        return cipherSuites.computeIfAbsent(cipherSuite, ignore -> new CipherSuiteStats());
+    }
+
+    private static final class CipherSuiteStats {
+
+        private final LongAdder fullHandshakes = new LongAdder();
+        private final LongAdder resumedHandshakes = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LatencyHistogram handshakeLatency = new LatencyHistogram();
+
+        private void reset() {
+            fullHandshakes.reset();
+            resumedHandshakes.reset();
+            requests.reset();
+            handshakeLatency.reset();
+        }
+    }
+}
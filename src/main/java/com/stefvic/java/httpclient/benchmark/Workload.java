@@ -0,0 +1,274 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.ECHO_RESOURCE;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.FIXED_RESOURCE;
+import static com.stefvic.java.httpclient.benchmark.BenchmarkJettyHttpServer.SIZE_PARAMETER;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * Pre-generated benchmark workload, either sampled from a profile or replayed from an access log.
+ * <p>
+ * All requests, their sizes and think times are generated once and up front, from a seeded {@link Random}, so the
+ * generation does not perturb the measurement and runs are repeatable. The request payloads are drawn from a pool of
+ * pre-generated bodies shared by the requests.
+ * <p>
+ * Profile file, in the {@link Properties} format:
+ * <pre>
+ * # weighted request mix: METHOD resource weight, comma separated
+ * mix=GET /fixed 8, POST /echo 2
+ * # used when there is no mix: GET /fixed versus POST /echo ratio
+ * get.ratio=0.8
+ * # size and think time distributions: fixed:v, uniform:min:max, lognormal:mu:sigma, empirical:v1=w1,v2=w2
+ * request.size=lognormal:8.5:1.2
+ * response.size=uniform:100:20000
+ * think.time.millis=fixed:0
+ * seed=42
+ * payload.pool.size=1024
+ * </pre>
+ * Access log file, one request per line: {@code timestampMillis METHOD resource requestBytes responseBytes}.
+ */
+@Getter
+final class Workload {
+
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+    private static final int DEFAULT_PAYLOAD_POOL_SIZE = 1024;
+    private static final long DEFAULT_SEED = 42;
+
+    private final List<WorkloadRequest> requests;
+    /**
+     * Replayed workloads are sent at their scheduled offsets, independently of the completed requests.
+     */
+    private final boolean openLoop;
+
+    private Workload(List<WorkloadRequest> requests, boolean openLoop) {
+        this.requests = requests;
+        this.openLoop = openLoop;
+    }
+
+    static Workload fromProfile(Path profileFile, BenchmarkConfig benchmarkConfig) {
+        var profile = new Properties();
+        try (Reader reader = Files.newBufferedReader(profileFile)) {
+            profile.load(reader);
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException(ioEx);
+        }
+        var random = new Random(Long.parseLong(profile.getProperty("seed", String.valueOf(DEFAULT_SEED))));
+        var mix = mix(profile);
+        var mixWeights = Distribution.cumulative(mix.stream().mapToDouble(MixEntry::getWeight).toArray());
+        var requestSize = Distribution.parse(profile.getProperty("request.size",
+                                                                 "fixed:" + benchmarkConfig.getContentBytesSize()));
+        var responseSize = Distribution.parse(profile.getProperty("response.size",
+                                                                  "fixed:" + benchmarkConfig.getContentBytesSize()));
+        var thinkTimeMillis = Distribution.parse(profile.getProperty("think.time.millis", "fixed:0"));
+        var payloads = new byte[Integer.parseInt(profile.getProperty("payload.pool.size",
+                                                                     String.valueOf(DEFAULT_PAYLOAD_POOL_SIZE)))][];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = content(random, Math.toIntExact(requestSize.sample(random)));
+        }
+
+        var requests = new ArrayList<WorkloadRequest>(benchmarkConfig.getRequests());
+        for (int i = 0; i < benchmarkConfig.getRequests(); i++) {
+            var entry = mix.get(Distribution.pick(mixWeights, random));
+            var thinkNanos = TimeUnit.MILLISECONDS.toNanos(thinkTimeMillis.sample(random));
+            if (POST.equals(entry.method)) {
+                requests.add(new WorkloadRequest(entry.label(), entry.method, entry.resource,
+                                                 payloads[random.nextInt(payloads.length)], thinkNanos, 0));
+            } else {
+                requests.add(new WorkloadRequest(entry.label(), entry.method,
+                                                 sizedResource(entry.resource, responseSize.sample(random)),
+                                                 null, thinkNanos, 0));
+            }
+        }
+        return new Workload(requests, false);
+    }
+
+    static Workload fromAccessLog(Path accessLogFile, double speed) {
+        var random = new Random(DEFAULT_SEED);
+        Map<Integer, byte[]> payloadsBySize = new HashMap<>();
+        var requests = new ArrayList<WorkloadRequest>();
+        long firstTimestamp = -1;
+        try {
+            for (String line : Files.readAllLines(accessLogFile)) {
+                var trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                var columns = trimmed.split("\\s+");
+                long timestamp = Long.parseLong(columns[0]);
+                var method = columns[1].toUpperCase(Locale.ROOT);
+                var resource = columns[2];
+                int requestBytes = Integer.parseInt(columns[3]);
+                long responseBytes = Long.parseLong(columns[4]);
+                if (firstTimestamp < 0) {
+                    firstTimestamp = timestamp;
+                }
+                var offsetNanos = (long) (TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp) / speed);
+                var label = method + " " + resource;
+                if (POST.equals(method)) {
+                    var body = payloadsBySize.computeIfAbsent(requestBytes, size -> content(random, size));
+                    requests.add(new WorkloadRequest(label, method, resource, body, 0, offsetNanos));
+                } else {
+                    requests.add(new WorkloadRequest(label, method, sizedResource(resource, responseBytes),
+                                                     null, 0, offsetNanos));
+                }
+            }
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException(ioEx);
+        }
+        return new Workload(requests, true);
+    }
+
+    private static List<MixEntry> mix(Properties profile) {
+        var mix = profile.getProperty("mix");
+        if (mix == null) {
+            var getRatio = Double.parseDouble(profile.getProperty("get.ratio", "0.5"));
+            return List.of(new MixEntry(GET, FIXED_RESOURCE, getRatio),
+                           new MixEntry(POST, ECHO_RESOURCE, 1 - getRatio));
+        }
+        var entries = new ArrayList<MixEntry>();
+        for (String entry : mix.split(",")) {
+            var columns = entry.trim().split("\\s+");
+            if (columns.length != 3) {
+                throw new IllegalArgumentException("Invalid workload mix entry '" + entry + "', expected: METHOD resource weight");
+            }
+            entries.add(new MixEntry(columns[0].toUpperCase(Locale.ROOT), columns[1], Double.parseDouble(columns[2])));
+        }
+        return entries;
+    }
+
+    private static String sizedResource(String resource, long responseBytes) {
+        if (responseBytes <= 0 || resource.contains("?")) {
+            return resource;
+        }
+        return resource + "?" + SIZE_PARAMETER + "=" + responseBytes;
+    }
+
+    private static byte[] content(Random random, int size) {
+        byte[] content = new byte[Math.max(size, 0)];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('A' + random.nextInt('Z' - 'A' + 1));
+        }
+        return content;
+    }
+
+    @Getter
+    static final class WorkloadRequest {
+
+        private final String label;
+        private final String method;
+        private final String resource;
+        private final byte[] body;
+        private final long thinkNanos;
+        private final long scheduledOffsetNanos;
+
+        private WorkloadRequest(String label,
+                                String method,
+                                String resource,
+                                byte[] body,
+                                long thinkNanos,
+                                long scheduledOffsetNanos) {
+            this.label = label;
+            this.method = method;
+            this.resource = resource;
+            this.body = body;
+            this.thinkNanos = thinkNanos;
+            this.scheduledOffsetNanos = scheduledOffsetNanos;
+        }
+
+        boolean isPost() {
+            return POST.equals(method);
+        }
+    }
+
+    @Getter
+    private static final class MixEntry {
+
+        private final String method;
+        private final String resource;
+        private final double weight;
+
+        private MixEntry(String method, String resource, double weight) {
+            this.method = method;
+            this.resource = resource;
+            this.weight = weight;
+        }
+
+        private String label() {
+            return method + " " + resource;
+        }
+    }
+
+    /**
+     * Size or time distribution sampled on the workload generation.
+     */
+    interface Distribution {
+
+        static Distribution parse(String spec) {
+            var parts = spec.trim().split(":", 2);
+            var type = parts[0].toLowerCase(Locale.ROOT);
+            var args = parts.length > 1 ? parts[1].split(":") : new String[0];
+            switch (type) {
+                case "fixed":
+                    long value = Long.parseLong(args[0]);
+                    return random -> value;
+                case "uniform":
+                    long min = Long.parseLong(args[0]);
+                    long max = Long.parseLong(args[1]);
+                    return random -> min + (long) (random.nextDouble() * (max - min + 1));
+                case "lognormal":
+                    double mu = Double.parseDouble(args[0]);
+                    double sigma = Double.parseDouble(args[1]);
+                    return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                case "empirical":
+                    var buckets = parts[1].split(",");
+                    long[] values = new long[buckets.length];
+                    double[] weights = new double[buckets.length];
+                    for (int i = 0; i < buckets.length; i++) {
+                        var bucket = buckets[i].trim().split("=");
+                        values[i] = Long.parseLong(bucket[0]);
+                        weights[i] = Double.parseDouble(bucket[1]);
+                    }
+                    var cumulativeWeights = cumulative(weights);
+                    return random -> values[pick(cumulativeWeights, random)];
+                default:
+                    throw new IllegalArgumentException("Unknown distribution '" + spec + "'");
+            }
+        }
+
+        static double[] cumulative(double[] weights) {
+            double[] cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < weights.length; i++) {
+                cumulative[i] /= sum;
+            }
+            return cumulative;
+        }
+
+        static int pick(double[] cumulativeWeights, Random random) {
+            int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, cumulativeWeights.length - 1);
+        }
+
+        long sample(Random random);
+    }
+}
@@ -0,0 +1,135 @@
+package com.stefvic.java.httpclient.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a pre-generated {@link Workload}: the profile workloads closed loop, by the benchmark concurrency with think
+ * time, and the replayed access logs open loop, at the scheduled offsets whatever the completed requests are.
+ * <p>
+ * The replayed requests latency is measured from the scheduled time, so the queueing behind a slow client is counted.
+ */
+final class WorkloadBenchmark {
+
+    private WorkloadBenchmark() {
+        throw new AssertionError("No instance");
+    }
+
+    static void run(ExecutorService executor,
+                    HttpAgentClient httpAgentClient,
+                    BenchmarkConfig benchmarkConfig,
+                    BenchmarkRoutes routes,
+                    Workload workload) {
+        var requests = workload.getRequests();
+        Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+        System.out.println("\nStart benchmarking workload " + (workload.isOpenLoop() ? "replay" : "profile") +
+                               " requests: " + requests.size());
+
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpClientResponse>> completed = new ArrayList<>(requests.size());
+        for (var request : requests) {
+            if (workload.isOpenLoop()) {
+                var scheduledNanos = start + request.getScheduledOffsetNanos();
+                parkUntil(scheduledNanos);
+                completed.add(CompletableFuture.supplyAsync(
+                    () -> send(httpAgentClient, benchmarkConfig, routes, endpoints, request, scheduledNanos), executor));
+            } else {
+                completed.add(CompletableFuture.supplyAsync(
+                    () -> {
+                        if (request.getThinkNanos() > 0) {
+                            parkUntil(System.nanoTime() + request.getThinkNanos());
+                        }
+                        return send(httpAgentClient, benchmarkConfig, routes, endpoints, request, System.nanoTime());
+                    }, executor));
+            }
+        }
+        CompletableFuture.allOf(completed.toArray(CompletableFuture[]::new)).join();
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+
+        var latency = routes.latency();
+        printStats(requests.size(), duration, routes, endpoints);
+        routes.reset();
+        httpAgentClient.cacheStats().ifPresent(cacheStats -> System.out.println("Workload cache stats: " +
+                                                                                     cacheStats.stats(duration)));
+        BenchmarkRunner.printServerMetricsAndReset("Workload", httpAgentClient, benchmarkConfig, latency);
+        verifyAllRequestSucceed(endpoints);
+    }
+
+    private static HttpClientResponse send(HttpAgentClient httpAgentClient,
+                                           BenchmarkConfig benchmarkConfig,
+                                           BenchmarkRoutes routes,
+                                           Map<String, EndpointStats> endpoints,
+                                           Workload.WorkloadRequest request,
+                                           long startNanos) {
+        var endpoint = endpoints.computeIfAbsent(request.getLabel(), ignore -> new EndpointStats());
+        var route = routes.next();
+        var target = BenchmarkRunner.target(benchmarkConfig, route.getPort(), request.getResource());
+        try {
+            var response = route.send(() -> request.isPost() ?
+                httpAgentClient.post(target, BenchmarkRunner.toHttpClientContext(benchmarkConfig, request.getBody())) :
+                httpAgentClient.get(target, BenchmarkRunner.toHttpClientContext(benchmarkConfig)));
+            endpoint.latency.recordSince(startNanos);
+            endpoint.bytesSent.add(request.isPost() ? request.getBody().length : 0);
+            endpoint.bytesReceived.add(response.responseBodyLength());
+            if (!response.isSuccess()) {
+                endpoint.errors.increment();
+            }
+            return response;
+        } catch (RuntimeException e) {
+            endpoint.latency.recordSince(startNanos);
+            endpoint.errors.increment();
+            throw e;
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long waitNanos;
+        while ((waitNanos = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private static void printStats(int requests,
+                                   Duration duration,
+                                   BenchmarkRoutes routes,
+                                   Map<String, EndpointStats> endpoints) {
+        var seconds = Math.max(duration.toMillis(), 1) / 1000.0;
+        System.out.println("Workload '" + requests + "' requests completed in: " + duration.toMillis() + " millis");
+        System.out.printf("Workload requests per seconds: %.1f%n", requests / seconds);
+        System.out.println("Workload latency: " + routes.latency().toMillisSummary());
+        new TreeMap<>(endpoints).forEach((label, stats) -> System.out.printf(
+            "  %s requests=%d errors=%d sentMiB/s=%.2f receivedMiB/s=%.2f latency: %s%n",
+            label,
+            stats.latency.count(),
+            stats.errors.sum(),
+            stats.bytesSent.sum() / seconds / (1024 * 1024),
+            stats.bytesReceived.sum() / seconds / (1024 * 1024),
+            stats.latency.toMillisSummary()));
+        routes.printStats("Workload", duration);
+    }
+
+    private static void verifyAllRequestSucceed(Map<String, EndpointStats> endpoints) {
+        var errors = endpoints.values().stream().mapToLong(stats -> stats.errors.sum()).sum();
+        if (errors > 0) {
+            var error = "Workload completed exceptionally!!! failed requests '" + errors + "'";
+            System.out.println(error);
+            throw new IllegalStateException(error);
+        }
+    }
+
+    private static final class EndpointStats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+    }
+}